@@ -166,6 +166,8 @@ public class DataLoader implements CommandLineRunner {
                 history.setTradeTime(timeCursor);
                 history.setBuyOrderId(buyOrder.getOrderId());
                 history.setSellOrderId(sellOrder.getOrderId());
+                history.setBuyerPlayerId(buyer.getPlayerId());
+                history.setSellerPlayerId(seller.getPlayerId());
                 
                 tradeHistoryRepository.save(history);
             }
@@ -0,0 +1,196 @@
+package com.gamemarket.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamemarket.service.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Honours the Idempotency-Key header on the order, cancel and trade endpoints. Keys are scoped
+ * to the endpoint and the requesting user. The first request with a key runs normally and, if it
+ * succeeded, its response is stored; a retry with the same key and body gets that stored response
+ * back without reaching the controller. A failed request releases its key so the client can
+ * retry it. A retry while the first request is still running gets 409, and reusing a key for a
+ * different body gets 422.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    // Set by controllers that answer a rejected command with a 2xx body
+    private static final String FAILED = IdempotencyFilter.class.getName() + ".FAILED";
+
+    private static final Set<String> PATHS = Set.of(
+        "/api/trade/orders",
+        "/api/trade/cancel",
+        "/api/market/trade",
+        "/api/market/trade/batch",
+        "/api/market/sweep"
+    );
+
+    @Autowired
+    private IdempotencyStore store;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+            || !PATHS.contains(request.getRequestURI())
+            || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HEADER).trim();
+        if (header.isEmpty() || header.length() > 255) {
+            reject(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid Idempotency-Key");
+            return;
+        }
+        byte[] body = request.getInputStream().readAllBytes();
+        String key = request.getRequestURI() + ":" + userId(request, body) + ":" + header;
+        String hash = sha256(body);
+
+        IdempotencyStore.StoredResponse stored = store.lookup(key);
+        if (stored != null) {
+            replay(stored, hash, response);
+            return;
+        }
+        if (!store.begin(key)) {
+            reject(response, HttpServletResponse.SC_CONFLICT, "A request with this Idempotency-Key is still in progress");
+            return;
+        }
+        boolean completed = false;
+        try {
+            // The first request may have finished between the lookup and begin
+            stored = store.cached(key);
+            if (stored != null) {
+                replay(stored, hash, response);
+                return;
+            }
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            chain.doFilter(new CachedBodyRequest(request, body), wrapper);
+            int status = wrapper.getStatus();
+            String contentType = wrapper.getContentType();
+            byte[] responseBody = wrapper.getContentAsByteArray();
+            // The client gets its answer before it is persisted
+            wrapper.copyBodyToResponse();
+            if (status >= 200 && status < 300 && request.getAttribute(FAILED) == null) {
+                store.complete(key, new IdempotencyStore.StoredResponse(hash, status, contentType, responseBody, System.currentTimeMillis()));
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                store.abandon(key);
+            }
+        }
+    }
+
+    /** Marks the current request as rejected, so its response is not stored for retries. */
+    public static void markFailed(HttpServletRequest request) {
+        request.setAttribute(FAILED, Boolean.TRUE);
+    }
+
+    // The payload's userId; order creation falls back to user 1 like TradeController does
+    private String userId(HttpServletRequest request, byte[] body) {
+        try {
+            JsonNode userId = objectMapper.readTree(body).get("userId");
+            if (userId != null && !userId.isNull()) {
+                return userId.asText();
+            }
+        } catch (IOException | RuntimeException ex) {
+            // Malformed bodies are rejected by the controller; they share the anonymous scope
+        }
+        return "/api/trade/orders".equals(request.getRequestURI()) ? "1" : "";
+    }
+
+    private void replay(IdempotencyStore.StoredResponse stored, String hash, HttpServletResponse response) throws IOException {
+        if (!stored.requestHash().equals(hash)) {
+            reject(response, 422, "Idempotency-Key was already used for a different request");
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader("Idempotent-Replayed", "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Map.of("message", message));
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // Request whose body was already read by the filter and is served again from memory
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() { return in.available() == 0; }
+
+                @Override
+                public boolean isReady() { return true; }
+
+                @Override
+                public void setReadListener(ReadListener listener) { throw new UnsupportedOperationException(); }
+
+                @Override
+                public int read() { return in.read(); }
+
+                @Override
+                public int read(byte[] b, int off, int len) { return in.read(b, off, len); }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.gamemarket.config;
+
+import com.gamemarket.service.ResponseCache;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Conditional GET and response caching for the market read endpoints that clients poll.
+ * Rendered bodies are kept in {@link ResponseCache} with their gzip encoding, keyed by path and
+ * parameters and tagged with the version of the asset (itemId) or of the whole market they
+ * were built from. While that version is current, repeats are answered from memory, and a
+ * client presenting the same ETag (or a Last-Modified date that is not older) gets 304.
+ * Streamed history (stream=true or maxPoints) is never cached.
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Set<String> PATHS = Set.of(
+        "/api/market/listings",
+        "/api/market/history",
+        "/api/market/history/daily",
+        "/api/market/categories",
+        "/api/market/categories/facets"
+    );
+
+    // Bodies below this size are not worth compressing
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private static final long MINUTE_MS = 60_000L;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Value("${market.response-cache.max-body-bytes:1048576}")
+    private int maxBodyBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod())
+            || !PATHS.contains(request.getRequestURI())
+            || request.getParameter("maxPoints") != null
+            || "true".equalsIgnoreCase(request.getParameter("stream"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Integer assetId;
+        try {
+            String itemId = request.getParameter("itemId");
+            assetId = itemId == null ? null : Integer.valueOf(itemId);
+        } catch (NumberFormatException ex) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String key = key(request);
+        // Read before rendering, so a change made meanwhile invalidates what is rendered
+        long version = responseCache.version(assetId);
+        ResponseCache.CachedResponse cached = responseCache.get(key, version);
+        if (cached != null) {
+            serve(cached, request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        byte[] body = wrapper.getContentAsByteArray();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || request.isAsyncStarted() || body.length > maxBodyBytes) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // Summary listings carry rolling statistics that move with the clock
+        long expires = assetId == null && request.getRequestURI().equals("/api/market/listings")
+            ? (now / MINUTE_MS + 1) * MINUTE_MS
+            : Long.MAX_VALUE;
+        cached = new ResponseCache.CachedResponse(version, expires, wrapper.getContentType(), body,
+            body.length >= GZIP_MIN_BYTES ? gzip(body) : null, etag(body), now / 1000 * 1000);
+        responseCache.put(key, cached);
+        serve(cached, request, response);
+    }
+
+    private void serve(ResponseCache.CachedResponse cached, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader("ETag", cached.etag());
+        response.setDateHeader("Last-Modified", cached.lastModified());
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Vary", "Accept-Encoding");
+        // Replayed bodies skip the controller, so repeat its @CrossOrigin(origins = "*") answer
+        if (request.getHeader("Origin") != null && !response.containsHeader("Access-Control-Allow-Origin")) {
+            response.setHeader("Access-Control-Allow-Origin", "*");
+        }
+        if (notModified(cached, request)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        if (cached.contentType() != null) {
+            response.setContentType(cached.contentType());
+        }
+        byte[] body = cached.body();
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (cached.gzipped() != null && acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            body = cached.gzipped();
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean notModified(ResponseCache.CachedResponse cached, HttpServletRequest request) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String t = tag.trim();
+                if (t.startsWith("W/")) {
+                    t = t.substring(2);
+                }
+                if (t.equals("*") || t.equals(cached.etag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            return ifModifiedSince != -1 && cached.lastModified() <= ifModifiedSince;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    // Path plus parameters in a stable order
+    private static String key(HttpServletRequest request) {
+        StringBuilder sb = new StringBuilder(request.getRequestURI());
+        for (Map.Entry<String, String[]> e : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            sb.append('&').append(e.getKey()).append('=').append(Arrays.toString(e.getValue()));
+        }
+        return sb.toString();
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        }
+        return out.toByteArray();
+    }
+}
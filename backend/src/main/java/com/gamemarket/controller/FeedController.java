@@ -0,0 +1,45 @@
+package com.gamemarket.controller;
+
+import com.gamemarket.service.MarketFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/feed")
+@CrossOrigin(origins = "*")
+public class FeedController {
+
+    @Autowired
+    private MarketFeedService marketFeedService;
+
+    /**
+     * Server-sent events: "trade" prints and conflated "market" updates for the given assets
+     * (comma-separated ids, all assets when omitted), plus "notification" events when a userId
+     * is given. A "lagged" event reports trades dropped because the client fell behind; an
+     * "overflow" event means notifications could not be queued and the feed is closing.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Object subscribe(@RequestParam(required = false) String assets, @RequestParam(required = false) Integer userId) {
+        Set<Integer> assetIds = null;
+        if (assets != null && !assets.isBlank()) {
+            assetIds = new LinkedHashSet<>();
+            for (String id : assets.split(",")) {
+                try {
+                    assetIds.add(Integer.valueOf(id.trim()));
+                } catch (NumberFormatException e) {
+                    // The mapping only produces event streams, so the error body sets its own type
+                    return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                        .body(Map.of("message", "Invalid asset id: " + id));
+                }
+            }
+        }
+        return marketFeedService.subscribe(assetIds, userId);
+    }
+}
@@ -1,7 +1,9 @@
 package com.gamemarket.controller;
 
 import com.gamemarket.entity.Asset;
-import com.gamemarket.repository.AssetRepository;
+import com.gamemarket.service.AssetCatalog;
+import com.gamemarket.service.AssetSearchIndex;
+import com.gamemarket.service.RollingStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,24 +16,38 @@ import java.util.Map;
 public class ItemController {
 
     @Autowired
-    private AssetRepository assetRepository;
+    private AssetCatalog assetCatalog;
+
+    @Autowired
+    private RollingStatsService rollingStatsService;
+
+    @Autowired
+    private AssetSearchIndex assetSearchIndex;
 
     @GetMapping("/{id}")
     public Map<String, Object> getItem(@PathVariable Integer id) {
-        Asset asset = assetRepository.findById(id).orElseThrow(() -> new RuntimeException("Item not found"));
+        AssetCatalog.Entry asset = assetCatalog.get(id);
+        if (asset == null) {
+            throw new RuntimeException("Item not found");
+        }
+        RollingStatsService.Stats stats = rollingStatsService.stats(asset.assetId());
         return Map.<String, Object>of(
-            "id", asset.getAssetId(),
-            "name", asset.getAssetName(),
-            "price", asset.getBasePrice(),
-            "change", 2.5, // Mock
+            "id", asset.assetId(),
+            "name", asset.name(),
+            "price", asset.basePrice(),
+            "change", stats.day().change(),
+            "stats", stats.toMap(),
             "img", "https://via.placeholder.com/400x300",
-            "description", "Type: " + asset.getAssetType()
+            "description", "Type: " + asset.type()
         );
     }
 
+    // Ranked type-ahead search served from the resident index; an empty q lists the catalog
     @GetMapping("/search")
-    public List<Asset> searchItems(@RequestParam String q) {
-        // Simplified search
-        return assetRepository.findAll(); 
+    public List<Asset> searchItems(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+        if (q.isBlank()) {
+            return assetSearchIndex.search(q, limit != null ? limit : Integer.MAX_VALUE);
+        }
+        return assetSearchIndex.search(q, limit != null ? limit : AssetSearchIndex.DEFAULT_LIMIT);
     }
 }
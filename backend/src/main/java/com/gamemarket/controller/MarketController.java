@@ -1,19 +1,47 @@
 package com.gamemarket.controller;
 
-import com.gamemarket.entity.Asset;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gamemarket.entity.MarketOrder;
-import com.gamemarket.repository.AssetRepository;
 import com.gamemarket.repository.MarketOrderRepository;
+import com.gamemarket.repository.MarketOrderSpecifications;
+import com.gamemarket.service.AssetCatalog;
+import com.gamemarket.service.AssetSearchIndex;
+import com.gamemarket.service.CandleService;
+import com.gamemarket.service.CategoryFacetService;
+import com.gamemarket.service.IndicatorService;
+import com.gamemarket.service.LttbDownsampler;
+import com.gamemarket.service.MarketSummaryService;
+import com.gamemarket.service.Money;
+import com.gamemarket.service.OrderBook;
+import com.gamemarket.service.OrderBookService;
 import com.gamemarket.service.OrderService;
+import com.gamemarket.service.RollingStatsService;
+import com.gamemarket.service.TradeHistoryStreamer;
+import com.gamemarket.service.TradeSequencer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.Duration;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RestController
@@ -21,18 +49,50 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class MarketController {
 
+    private static final int MAX_DEPTH_LEVELS = 500;
+
     @Autowired
     private MarketOrderRepository orderRepository;
 
     @Autowired
-    private AssetRepository assetRepository;
+    private com.gamemarket.repository.TradeHistoryRepository tradeHistoryRepository;
 
     @Autowired
-    private com.gamemarket.repository.TradeHistoryRepository tradeHistoryRepository;
+    private AssetCatalog assetCatalog;
+
+    @Autowired
+    private AssetSearchIndex assetSearchIndex;
 
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private TradeSequencer tradeSequencer;
+
+    @Autowired
+    private MarketSummaryService marketSummaryService;
+
+    @Autowired
+    private CandleService candleService;
+
+    @Autowired
+    private TradeHistoryStreamer tradeHistoryStreamer;
+
+    @Autowired
+    private RollingStatsService rollingStatsService;
+
+    @Autowired
+    private CategoryFacetService categoryFacetService;
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private IndicatorService indicatorService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/listings")
     public Object getListings(
             @RequestParam(required = false) String sort, 
@@ -41,159 +101,95 @@ public class MarketController {
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size) {
-        
-        List<MarketOrder> orders = orderRepository.findByStatus("OPEN");
-
-        // If itemId specified, return individual orders for that asset (existing behavior)
-        if (itemId != null) {
-            orders = orders.stream()
-                .filter(o -> o.getAsset().getAssetId().equals(itemId))
-                .collect(Collectors.toList());
-        }
-
-        if (keyword != null && !keyword.isEmpty()) {
-            String lowerKeyword = keyword.toLowerCase();
-            orders = orders.stream()
-                .filter(o -> o.getAsset().getAssetName().toLowerCase().contains(lowerKeyword))
-                .collect(Collectors.toList());
-        }
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String after) {
 
-        if (category != null && !category.isEmpty() && !category.equals("All")) {
-            orders = orders.stream()
-                .filter(o -> o.getAsset() != null && o.getAsset().getAssetType() != null && o.getAsset().getAssetType().equalsIgnoreCase(category))
-                .collect(Collectors.toList());
+        if (itemId == null) {
+            return summaryListings(sort, limit, keyword, category, page, size);
         }
 
-        if (sort != null) {
-            switch (sort) {
-                case "price_asc":
-                    orders.sort((o1, o2) -> o1.getPrice().compareTo(o2.getPrice()));
-                    break;
-                case "price_desc":
-                    orders.sort((o1, o2) -> o2.getPrice().compareTo(o1.getPrice()));
-                    break;
-                case "newest":
-                    orders.sort((o1, o2) -> o2.getCreateTime().compareTo(o1.getCreateTime()));
-                    break;
-                // 'hot' and 'gainers' are handled below when itemId is not provided
+        // itemId specified: return individual orders for that asset, filtered, sorted and paged in SQL.
+        // Keywords go through the same search index as the summary listings.
+        Set<Integer> assetIds = assetCatalog.inCategory(category);
+        if (keyword != null && !keyword.isEmpty()) {
+            Set<Integer> matches = assetSearchIndex.matchingIds(keyword);
+            if (assetIds != null) {
+                matches.retainAll(assetIds);
             }
+            assetIds = matches;
         }
-
-        // If itemId provided, return orders as before
-        if (itemId != null) {
-            // Pagination for orders
-            if (page != null && size != null) {
-                int totalElements = orders.size();
-                int totalPages = (int) Math.ceil((double) totalElements / size);
-                int start = page * size;
-                int end = Math.min(start + size, totalElements);
-
-                List<MarketOrder> pagedOrders;
-                if (start >= totalElements) {
-                    pagedOrders = List.of();
-                } else {
-                    pagedOrders = orders.subList(start, end);
+        Specification<MarketOrder> spec = Specification.where(MarketOrderSpecifications.hasStatus("OPEN"))
+            .and(MarketOrderSpecifications.forAsset(itemId))
+            .and(MarketOrderSpecifications.assetIn(assetIds));
+
+        boolean newest = "newest".equals(sort);
+        boolean descending = "price_desc".equals(sort);
+        Sort order = newest
+            ? Sort.by(Sort.Order.desc("createTime"), Sort.Order.desc("orderId"))
+            : descending
+                ? Sort.by(Sort.Order.desc("price"), Sort.Order.desc("orderId"))
+                : Sort.by(Sort.Order.asc("price"), Sort.Order.asc("orderId"));
+
+        // Keyset pagination: after=<price,orderId> (after=<createTime,orderId> for newest); empty for the first page
+        if (after != null) {
+            int pageSize = size != null ? size : (limit != null ? limit : 20);
+            if (!after.isEmpty()) {
+                String[] parts = after.split(",");
+                if (parts.length != 2) {
+                    return ResponseEntity.badRequest().body(Map.of("message", "after must be <value>,<orderId>"));
+                }
+                try {
+                    Integer afterId = Integer.parseInt(parts[1].trim());
+                    spec = spec.and(newest
+                        ? MarketOrderSpecifications.olderThan(LocalDateTime.parse(parts[0].trim()), afterId)
+                        : MarketOrderSpecifications.afterPrice(new BigDecimal(parts[0].trim()), afterId, descending));
+                } catch (RuntimeException ex) {
+                    return ResponseEntity.badRequest().body(Map.of("message", "Invalid after cursor: " + after));
                 }
-
-                List<Map<String, Object>> content = pagedOrders.stream().map(this::mapOrderToResponse).collect(Collectors.toList());
-
-                return Map.of(
-                    "content", content,
-                    "totalPages", totalPages,
-                    "totalElements", totalElements,
-                    "number", page,
-                    "size", size
-                );
             }
-
-            return orders.stream().limit(limit != null ? limit : 100).map(this::mapOrderToResponse).collect(Collectors.toList());
-        }
-
-        // No itemId: aggregate by asset to build market listing summary (one entry per asset)
-        Map<Integer, List<MarketOrder>> ordersByAsset = orders.stream()
-            .filter(o -> o.getAsset() != null)
-            .collect(Collectors.groupingBy(o -> o.getAsset().getAssetId()));
-
-        List<Map<String, Object>> assetSummaries = ordersByAsset.entrySet().stream().map(entry -> {
-            Integer assetIdKey = entry.getKey();
-            List<MarketOrder> assetOrders = entry.getValue();
-            Asset asset = assetOrders.get(0).getAsset();
-
-            // lowest sell price
-            Optional<java.math.BigDecimal> lowestPrice = assetOrders.stream().map(MarketOrder::getPrice).min(java.util.Comparator.naturalOrder());
-
-            // compute sales in last 24 hours and change percent using DB-side aggregations for performance
-            java.time.Instant now = java.time.Instant.now();
-            java.time.Instant dayBefore = now.minus(Duration.ofHours(24));
-            java.sql.Timestamp sinceTs = java.sql.Timestamp.from(dayBefore);
-            java.sql.Timestamp beforeTs = java.sql.Timestamp.from(dayBefore);
-
-            Long sales24 = 0L;
-            try {
-                sales24 = Optional.ofNullable(tradeHistoryRepository.sumQuantitySince(assetIdKey, sinceTs)).orElse(0L);
-            } catch (Exception ex) {
-                // fallback to 0 on error
-                sales24 = 0L;
+            List<MarketOrder> rows = orderRepository.findBy(spec, q -> q.sortBy(order).limit(pageSize + 1).all());
+            boolean hasMore = rows.size() > pageSize;
+            List<MarketOrder> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("content", pageRows.stream().map(this::mapOrderToResponse).collect(Collectors.toList()));
+            result.put("size", pageSize);
+            if (hasMore) {
+                MarketOrder last = pageRows.get(pageRows.size() - 1);
+                result.put("nextAfter", (newest ? last.getCreateTime().toString() : last.getPrice().toPlainString()) + "," + last.getOrderId());
             }
+            return result;
+        }
 
-            Double latestPrice = Optional.ofNullable(tradeHistoryRepository.findLatestPriceByAssetId(assetIdKey)).orElse(null);
-            Double price24hAgo = Optional.ofNullable(tradeHistoryRepository.findPriceAtOrBefore(assetIdKey, beforeTs)).orElse(null);
-            Double changePercent = 0.0;
-            if (latestPrice != null && price24hAgo != null && price24hAgo != 0) {
-                changePercent = ((latestPrice - price24hAgo) / price24hAgo) * 100.0;
-            }
+        // Offset pagination for orders
+        if (page != null && size != null) {
+            Page<MarketOrder> pagedOrders = orderRepository.findAll(spec, PageRequest.of(page, size, order));
+            List<Map<String, Object>> content = pagedOrders.getContent().stream().map(this::mapOrderToResponse).collect(Collectors.toList());
 
-            String encodedName = asset.getAssetName().replace(" ", "+");
-            String imgUrl = "https://via.placeholder.com/300x200?text=" + encodedName;
-
-            return Map.<String, Object>of(
-                "id", asset.getAssetId(),
-                "name", asset.getAssetName(),
-                "price", lowestPrice.orElse(java.math.BigDecimal.ZERO),
-                "img", imgUrl,
-                "sales24", sales24,
-                "change", changePercent,
-                "hasSellOrders", true
+            return Map.of(
+                "content", content,
+                "totalPages", pagedOrders.getTotalPages(),
+                "totalElements", (int) pagedOrders.getTotalElements(),
+                "number", page,
+                "size", size
             );
-        }).collect(Collectors.toList());
-
-        // Sort asset summaries according to sort param
-        if (sort != null) {
-            switch (sort) {
-                case "hot":
-                    assetSummaries.sort((a, b) -> Long.compare((Long) b.getOrDefault("sales24", 0L), (Long) a.getOrDefault("sales24", 0L)));
-                    break;
-                case "gainers":
-                    assetSummaries.sort((a, b) -> Double.compare(((Number) b.getOrDefault("change", 0)).doubleValue(), ((Number) a.getOrDefault("change", 0)).doubleValue()));
-                    break;
-                case "price_asc":
-                    assetSummaries.sort((a, b) -> new java.math.BigDecimal(a.get("price" ).toString()).compareTo(new java.math.BigDecimal(b.get("price").toString())));
-                    break;
-                case "price_desc":
-                    assetSummaries.sort((a, b) -> new java.math.BigDecimal(b.get("price" ).toString()).compareTo(new java.math.BigDecimal(a.get("price").toString())));
-                    break;
-                default:
-                    break;
-            }
         }
 
-        // Pagination for asset summaries
+        int max = limit != null ? limit : 100;
+        return orderRepository.findBy(spec, q -> q.sortBy(order).limit(max).all()).stream()
+            .map(this::mapOrderToResponse)
+            .collect(Collectors.toList());
+    }
+
+    // Market listing summary, one entry per asset with resting orders, served from MarketSummaryService
+    private Object summaryListings(String sort, Integer limit, String keyword, String category, Integer page, Integer size) {
         if (page != null && size != null) {
-            int totalElements = assetSummaries.size();
+            MarketSummaryService.Page summaries = marketSummaryService.page(sort, keyword, category, page * size, size);
+            int totalElements = summaries.total();
             int totalPages = (int) Math.ceil((double) totalElements / size);
-            int start = page * size;
-            int end = Math.min(start + size, totalElements);
-
-            List<Map<String, Object>> pagedAssets;
-            if (start >= totalElements) {
-                pagedAssets = List.of();
-            } else {
-                pagedAssets = assetSummaries.subList(start, end);
-            }
 
             return Map.of(
-                "content", pagedAssets,
+                "content", summaries.content().stream().map(this::mapSummaryToResponse).collect(Collectors.toList()),
                 "totalPages", totalPages,
                 "totalElements", totalElements,
                 "number", page,
@@ -201,23 +197,43 @@ public class MarketController {
             );
         }
 
-        return assetSummaries.stream().limit(limit != null ? limit : 100).collect(Collectors.toList());
+        return marketSummaryService.page(sort, keyword, category, 0, limit != null ? limit : 100).content().stream()
+            .map(this::mapSummaryToResponse)
+            .collect(Collectors.toList());
+    }
+
+    private Map<String, Object> mapSummaryToResponse(MarketSummaryService.Summary summary) {
+        String encodedName = summary.name().replace(" ", "+");
+        String imgUrl = "https://via.placeholder.com/300x200?text=" + encodedName;
+
+        return Map.<String, Object>of(
+            "id", summary.assetId(),
+            "name", summary.name(),
+            "price", Money.toBigDecimal(summary.price()),
+            "img", imgUrl,
+            "sales24", summary.sales24(),
+            "change", summary.change(),
+            "stats", summary.stats().toMap(),
+            "hasSellOrders", true
+        );
     }
 
     private Map<String, Object> mapOrderToResponse(MarketOrder order) {
-        Asset asset = order.getAsset();
-        String encodedName = asset.getAssetName().replace(" ", "+");
+        AssetCatalog.Entry asset = assetCatalog.require(order.getAsset().getAssetId());
+        String encodedName = asset.name().replace(" ", "+");
         String imgUrl = "https://via.placeholder.com/300x200?text=" + encodedName;
-        
+        RollingStatsService.Stats stats = rollingStatsService.stats(asset.assetId());
+
         return Map.<String, Object>of(
-            "id", asset.getAssetId(),
+            "id", asset.assetId(),
             "orderId", order.getOrderId(),
-            "name", asset.getAssetName(),
+            "name", asset.name(),
             "price", order.getPrice(),
             "quantity", order.getQuantity(),
             "type", order.getOrderType(),
             "createTime", order.getCreateTime(),
-            "change", (Math.random() * 10) - 5, // Mock change between -5% and +5%
+            "change", stats.day().change(),
+            "stats", stats.toMap(),
             "img", imgUrl
         );
     }
@@ -229,37 +245,259 @@ public class MarketController {
             Integer userId = Integer.parseInt(payload.get("userId").toString());
             Integer quantity = Integer.parseInt(payload.get("quantity").toString());
             
-            orderService.executeTrade(orderId, userId, quantity);
+            TradeSequencer.await(tradeSequencer.executeTrade(orderId, userId, quantity));
             return ResponseEntity.ok(Map.of("message", "Trade executed successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         }
     }
 
+    @PostMapping("/trade/batch")
+    public ResponseEntity<?> executeTrades(@RequestBody Map<String, Object> payload) {
+        try {
+            Integer userId = Integer.parseInt(payload.get("userId").toString());
+            List<OrderService.Fill> fills = ((List<?>) payload.get("fills")).stream()
+                .map(f -> (Map<?, ?>) f)
+                .map(f -> new OrderService.Fill(
+                    f.get("orderId") == null ? null : Integer.parseInt(f.get("orderId").toString()),
+                    f.get("quantity") == null ? null : Integer.parseInt(f.get("quantity").toString())))
+                .collect(Collectors.toList());
+
+            List<OrderService.FillResult> results = TradeSequencer.await(tradeSequencer.executeTrades(userId, fills));
+            long filled = results.stream().filter(OrderService.FillResult::success).count();
+            return ResponseEntity.ok(Map.of(
+                "message", "Batch processed",
+                "filled", filled,
+                "failed", results.size() - filled,
+                "results", results
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/sweep")
+    public ResponseEntity<?> sweep(@RequestBody Map<String, Object> payload) {
+        try {
+            Integer userId = Integer.parseInt(payload.get("userId").toString());
+            Integer itemId = Integer.parseInt(payload.get("itemId").toString());
+            Integer quantity = Integer.parseInt(payload.get("quantity").toString());
+            java.math.BigDecimal limitPrice = payload.get("limitPrice") == null ? null : new java.math.BigDecimal(payload.get("limitPrice").toString());
+            String side = payload.get("side") == null ? "BUY" : payload.get("side").toString();
+
+            OrderService.SweepResult result = TradeSequencer.await(tradeSequencer.sweep(userId, itemId, side, quantity, limitPrice));
+            List<Map<String, Object>> fills = result.fills().stream()
+                .map(t -> Map.<String, Object>of(
+                    "tradeId", t.getTradeId(),
+                    "orderId", "BUY".equalsIgnoreCase(side) ? t.getSellOrderId() : t.getBuyOrderId(),
+                    "price", t.getPrice(),
+                    "quantity", t.getQuantity()
+                ))
+                .collect(Collectors.toList());
+
+            Map<String, Object> body = new java.util.HashMap<>();
+            body.put("message", result.filled() > 0 ? "Sweep executed" : "No matching orders");
+            body.put("requested", result.requested());
+            body.put("filled", result.filled());
+            body.put("total", result.total());
+            body.put("vwap", result.vwap());
+            body.put("fills", fills);
+            return ResponseEntity.ok(body);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     @GetMapping("/categories")
     public List<String> getCategories() {
-        return List.of("Rifle", "Sniper", "Pistol", "Knife");
+        return categoryFacetService.categories();
     }
 
+    // Per category: listed assets, open orders and resting price range, kept by CategoryFacetService
+    @GetMapping("/categories/facets")
+    public List<Map<String, Object>> getCategoryFacets() {
+        return categoryFacetService.facets().stream().map(CategoryFacetService.Facet::toMap).collect(Collectors.toList());
+    }
+
+    /**
+     * Raw trades of an asset for charts. With {@code maxPoints} the series is downsampled on the
+     * server with LTTB; with {@code maxPoints} or {@code stream=true} rows are read through a
+     * database cursor and written out as they arrive, so memory stays flat for long histories.
+     */
     @GetMapping("/history")
-    public List<Map<String, Object>> getTradeHistory(@RequestParam Integer itemId) {
-        return tradeHistoryRepository.findByAsset_AssetIdOrderByTradeTimeAsc(itemId).stream()
+    public ResponseEntity<?> getTradeHistory(
+            @RequestParam Integer itemId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer maxPoints,
+            @RequestParam(defaultValue = "false") boolean stream) {
+        if (maxPoints != null || stream) {
+            if (maxPoints != null && maxPoints < 3) {
+                return ResponseEntity.badRequest().body(Map.of("message", "maxPoints must be at least 3"));
+            }
+            LocalDateTime start = from == null ? LocalDateTime.of(1970, 1, 1, 0, 0) : from;
+            LocalDateTime end = to == null ? LocalDateTime.now() : to;
+            StreamingResponseBody body = out -> writeTradeHistory(out, itemId, start, end, maxPoints);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        }
+
+        List<com.gamemarket.entity.TradeHistory> trades = from == null && to == null
+            ? tradeHistoryRepository.findByAsset_AssetIdOrderByTradeTimeAsc(itemId)
+            : tradeHistoryRepository.findByAsset_AssetIdAndTradeTimeBetweenOrderByTradeTimeAsc(itemId,
+                from == null ? LocalDateTime.of(1970, 1, 1, 0, 0) : from, to == null ? LocalDateTime.now() : to);
+        return ResponseEntity.ok(trades.stream()
             .map(h -> Map.<String, Object>of(
                 "time", h.getTradeTime(),
                 "price", h.getPrice(),
                 "quantity", h.getQuantity()
             ))
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
+    }
+
+    // Writes the trades as a JSON array, one element at a time as the cursor (and downsampler) produce them
+    private void writeTradeHistory(OutputStream out, Integer itemId, LocalDateTime from, LocalDateTime to, Integer maxPoints) throws IOException {
+        try (JsonGenerator json = objectMapper.createGenerator(out)) {
+            json.writeStartArray();
+            Consumer<TradeHistoryStreamer.TradePoint> writer = p -> {
+                try {
+                    json.writeStartObject();
+                    json.writeObjectField("time", p.time());
+                    json.writeNumberField("price", p.price());
+                    json.writeNumberField("quantity", p.quantity());
+                    json.writeEndObject();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            };
+            if (maxPoints == null) {
+                tradeHistoryStreamer.forEach(itemId, from, to, writer);
+            } else {
+                long total = tradeHistoryStreamer.count(itemId, from, to);
+                LttbDownsampler<TradeHistoryStreamer.TradePoint> lttb = new LttbDownsampler<>(total, maxPoints,
+                    p -> p.time().toInstant(ZoneOffset.UTC).toEpochMilli(),
+                    p -> p.price().doubleValue(),
+                    writer);
+                tradeHistoryStreamer.forEach(itemId, from, to, lttb::accept);
+                lttb.finish();
+            }
+            json.writeEndArray();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
     }
 
+    // Daily lowest trade price, read from the 1d candles; the whole history unless from/to narrow it
     @GetMapping("/history/daily")
-    public List<Map<String, Object>> getDailyHistory(@RequestParam Integer itemId) {
-        List<Object[]> results = tradeHistoryRepository.findDailyMinPriceByAssetId(itemId);
-        return results.stream()
-            .map(row -> Map.<String, Object>of(
-                "date", row[0].toString(),
-                "price", row[1]
+    public List<Map<String, Object>> getDailyHistory(
+            @RequestParam Integer itemId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return candleService.dailyCandles(itemId, from, to).stream()
+            .map(c -> Map.<String, Object>of(
+                "date", c.getBucketStart().toLocalDate().toString(),
+                "price", c.getLow()
+            ))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Aggregated L2 depth of an asset: quantity and order count per price level, best
+     * {@code levels} levels per side. Clients keep a local copy current through
+     * {@code /depth/deltas} using the returned epoch and seq.
+     */
+    @GetMapping("/depth")
+    public Map<String, Object> getDepth(@RequestParam Integer itemId, @RequestParam(defaultValue = "20") int levels) {
+        return mapDepthToResponse(itemId, orderBookService.depth(itemId, Math.max(1, Math.min(levels, MAX_DEPTH_LEVELS))));
+    }
+
+    /**
+     * Level changes of an asset after seq {@code since} of the given epoch, oldest first; a
+     * quantity of 0 removes the level. When the changes are no longer retained (or the books
+     * were reloaded under a new epoch) the full depth is returned instead with resync=true.
+     */
+    @GetMapping("/depth/deltas")
+    public Map<String, Object> getDepthDeltas(@RequestParam Integer itemId, @RequestParam long since, @RequestParam long epoch,
+                                              @RequestParam(defaultValue = "20") int levels) {
+        List<OrderBook.LevelDelta> deltas = epoch == orderBookService.epoch() ? orderBookService.deltasSince(itemId, since) : null;
+        if (deltas == null) {
+            Map<String, Object> response = mapDepthToResponse(itemId, orderBookService.depth(itemId, Math.max(1, Math.min(levels, MAX_DEPTH_LEVELS))));
+            response.put("resync", true);
+            return response;
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("assetId", itemId);
+        response.put("epoch", epoch);
+        response.put("seq", deltas.isEmpty() ? since : deltas.get(deltas.size() - 1).seq());
+        response.put("resync", false);
+        response.put("deltas", deltas.stream().map(d -> Map.<String, Object>of(
+            "seq", d.seq(),
+            "side", d.side(),
+            "price", Money.toBigDecimal(d.price()),
+            "quantity", d.quantity(),
+            "orders", d.orders()
+        )).collect(Collectors.toList()));
+        return response;
+    }
+
+    private Map<String, Object> mapDepthToResponse(Integer assetId, OrderBook.Depth depth) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("assetId", assetId);
+        response.put("epoch", orderBookService.epoch());
+        response.put("seq", depth.seq());
+        response.put("bids", depth.bids().stream().map(this::mapLevelToResponse).collect(Collectors.toList()));
+        response.put("asks", depth.asks().stream().map(this::mapLevelToResponse).collect(Collectors.toList()));
+        return response;
+    }
+
+    private Map<String, Object> mapLevelToResponse(OrderBook.PriceLevel level) {
+        return Map.of(
+            "price", Money.toBigDecimal(level.price()),
+            "quantity", level.quantity(),
+            "orders", level.orders()
+        );
+    }
+
+    /**
+     * Streaming indicators of an asset (SMA/EMA over N trades and over time windows of minute
+     * closes, 1h/24h VWAP, volatility of log returns). With {@code series=true} the most recent
+     * {@code limit} points are included.
+     */
+    @GetMapping("/indicators")
+    public Map<String, Object> getIndicators(
+            @RequestParam Integer itemId,
+            @RequestParam(defaultValue = "false") boolean series,
+            @RequestParam(defaultValue = "200") int limit) {
+        Map<String, Object> response = indicatorService.current(itemId);
+        if (series) {
+            response.put("series", indicatorService.series(itemId, Math.max(1, limit)));
+        }
+        return response;
+    }
+
+    /**
+     * OHLCV candles for charts. resolution is 1m, 1h or 1d; from/to are ISO date-times and
+     * default to the most recent {@link CandleService#MAX_BUCKETS} buckets.
+     */
+    @GetMapping("/candles")
+    public ResponseEntity<?> getCandles(
+            @RequestParam Integer itemId,
+            @RequestParam(defaultValue = "1h") String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (!CandleService.isResolution(resolution)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Unsupported resolution: " + resolution));
+        }
+        List<Map<String, Object>> candles = candleService.candles(itemId, resolution, from, to).stream()
+            .map(c -> Map.<String, Object>of(
+                "time", c.getBucketStart(),
+                "open", c.getOpen(),
+                "high", c.getHigh(),
+                "low", c.getLow(),
+                "close", c.getClose(),
+                "volume", c.getVolume(),
+                "vwap", c.getVolume() == 0 ? c.getClose() : c.getTurnover().divide(BigDecimal.valueOf(c.getVolume()), Money.SCALE, java.math.RoundingMode.HALF_UP)
             ))
             .collect(Collectors.toList());
+        return ResponseEntity.ok(candles);
     }
 }
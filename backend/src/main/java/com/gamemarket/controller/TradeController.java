@@ -1,16 +1,25 @@
 package com.gamemarket.controller;
 
+import com.gamemarket.config.IdempotencyFilter;
 import com.gamemarket.entity.MarketOrder;
 import com.gamemarket.entity.TradeHistory;
-import com.gamemarket.repository.AssetRepository;
 import com.gamemarket.repository.MarketOrderRepository;
 import com.gamemarket.repository.TradeHistoryRepository;
+import com.gamemarket.service.AssetCatalog;
+import com.gamemarket.service.TradeSequencer;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -25,16 +34,16 @@ public class TradeController {
     private TradeHistoryRepository tradeHistoryRepository;
 
     @Autowired
-    private AssetRepository assetRepository;
+    private AssetCatalog assetCatalog;
 
     @Autowired
-    private com.gamemarket.service.OrderService orderService;
+    private com.gamemarket.service.TradeSequencer tradeSequencer;
 
     @Autowired
     private com.gamemarket.repository.WalletRepository walletRepository;
 
     @PostMapping("/orders")
-    public Map<String, Object> createOrder(@RequestBody Map<String, Object> payload) {
+    public Map<String, Object> createOrder(@RequestBody Map<String, Object> payload, HttpServletRequest request) {
         try {
             // Determine requester id from payload if provided, otherwise default to 1
             Integer requesterId = 1;
@@ -47,7 +56,8 @@ public class TradeController {
                 }
             }
 
-            orderService.createOrder(payload, requesterId);
+            List<TradeHistory> fills = TradeSequencer.await(tradeSequencer.createOrder(payload, requesterId));
+            int filled = fills.stream().mapToInt(TradeHistory::getQuantity).sum();
 
             // Fetch updated wallet for requester to provide immediate balance feedback
             var wallet = walletRepository.findByPlayerId(requesterId);
@@ -62,11 +72,14 @@ public class TradeController {
 
             return Map.of(
                 "message", "Order created successfully",
+                "filled", filled,
+                "timeInForce", payload.get("timeInForce") == null ? "GTC" : payload.get("timeInForce").toString().toUpperCase(),
                 "balance", balance,
                 "reserved", reserved,
                 "available", available
             );
         } catch (RuntimeException ex) {
+            IdempotencyFilter.markFailed(request);
             return Map.of("message", "Order creation failed: " + ex.getMessage());
         }
     }
@@ -93,38 +106,10 @@ public class TradeController {
                 totalPages = 1;
             }
             
-            // Collect all order IDs to fetch ownership info
-            java.util.Set<Integer> orderIds = new java.util.HashSet<>();
-            for (TradeHistory h : history) {
-                orderIds.add(h.getBuyOrderId());
-                orderIds.add(h.getSellOrderId());
-            }
-            
-            // Fetch all related orders to determine if user was buyer or seller
-            List<MarketOrder> orders = orderRepository.findAllById(orderIds);
-            Map<Integer, Integer> orderOwnerMap = orders.stream()
-                .collect(Collectors.toMap(MarketOrder::getOrderId, MarketOrder::getPlayerId));
-
-            List<Map<String, Object>> content = history.stream().map(h -> {
-                String type = "unknown";
-                Integer buyerId = orderOwnerMap.get(h.getBuyOrderId());
-                Integer sellerId = orderOwnerMap.get(h.getSellOrderId());
-                
-                if (buyerId != null && buyerId.equals(userId)) {
-                    type = "buy";
-                } else if (sellerId != null && sellerId.equals(userId)) {
-                    type = "sell";
-                }
-                
-                return Map.<String, Object>of(
-                    "id", h.getTradeId(),
-                    "type", type,
-                    "itemName", h.getAsset().getAssetName(),
-                    "date", h.getTradeTime().toString(),
-                    "price", h.getPrice(),
-                    "amount", h.getQuantity()
-                );
-            }).collect(Collectors.toList());
+            Map<Integer, Integer> owners = orderOwners(history);
+            List<Map<String, Object>> content = history.stream()
+                .map(h -> mapTradeToResponse(h, userId, owners))
+                .collect(Collectors.toList());
 
             if (page != null && size != null) {
                 return Map.of(
@@ -141,13 +126,88 @@ public class TradeController {
         return List.of();
     }
 
+    /**
+     * Cursor-paginated trade history of a player, newest first. Pass the nextAfter value of the
+     * previous page as {@code after} (format {@code <tradeTime>,<tradeId>}) to get the next one.
+     */
+    @GetMapping("/history")
+    public Object getHistory(
+            @RequestParam Integer userId,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String after) {
+        int pageSize = size == null ? 20 : Math.max(1, Math.min(size, 200));
+        List<TradeHistory> rows;
+        if (after == null || after.isEmpty()) {
+            rows = tradeHistoryRepository.findLatestByPlayer(userId, pageSize + 1);
+        } else {
+            String[] parts = after.split(",");
+            try {
+                rows = tradeHistoryRepository.findByPlayerBefore(userId, LocalDateTime.parse(parts[0].trim()), Integer.parseInt(parts[1].trim()), pageSize + 1);
+            } catch (RuntimeException ex) {
+                return ResponseEntity.badRequest().body(Map.of("message", "Invalid after cursor: " + after));
+            }
+        }
+        boolean hasMore = rows.size() > pageSize;
+        List<TradeHistory> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<Integer, Integer> owners = orderOwners(pageRows);
+        result.put("content", pageRows.stream().map(h -> mapTradeToResponse(h, userId, owners)).collect(Collectors.toList()));
+        result.put("size", pageSize);
+        if (hasMore) {
+            TradeHistory last = pageRows.get(pageRows.size() - 1);
+            result.put("nextAfter", last.getTradeTime() + "," + last.getTradeId());
+        }
+        return result;
+    }
+
+    // Owners of the orders behind trades whose buyer/seller columns are not backfilled yet
+    private Map<Integer, Integer> orderOwners(List<TradeHistory> trades) {
+        Set<Integer> orderIds = new HashSet<>();
+        for (TradeHistory h : trades) {
+            if (h.getBuyerPlayerId() == null && h.getBuyOrderId() != null) {
+                orderIds.add(h.getBuyOrderId());
+            }
+            if (h.getSellerPlayerId() == null && h.getSellOrderId() != null) {
+                orderIds.add(h.getSellOrderId());
+            }
+        }
+        Map<Integer, Integer> owners = new HashMap<>();
+        if (!orderIds.isEmpty()) {
+            for (MarketOrder o : orderRepository.findAllById(orderIds)) {
+                owners.put(o.getOrderId(), o.getPlayerId());
+            }
+        }
+        return owners;
+    }
+
+    private Map<String, Object> mapTradeToResponse(TradeHistory h, Integer userId, Map<Integer, Integer> owners) {
+        Integer buyer = h.getBuyerPlayerId() != null ? h.getBuyerPlayerId() : owners.get(h.getBuyOrderId());
+        Integer seller = h.getSellerPlayerId() != null ? h.getSellerPlayerId() : owners.get(h.getSellOrderId());
+        String type = "unknown";
+        if (userId.equals(buyer)) {
+            type = "buy";
+        } else if (userId.equals(seller)) {
+            type = "sell";
+        }
+
+        return Map.<String, Object>of(
+            "id", h.getTradeId(),
+            "type", type,
+            "itemName", assetCatalog.name(h.getAsset().getAssetId()),
+            "date", h.getTradeTime().toString(),
+            "price", h.getPrice(),
+            "amount", h.getQuantity()
+        );
+    }
+
     @GetMapping("/pending")
     public List<Map<String, Object>> getPendingOrders(@RequestParam Integer userId) {
         return orderRepository.findByPlayerIdAndStatus(userId, "OPEN").stream()
             .map(o -> Map.<String, Object>of(
                 "orderId", o.getOrderId(),
                 "assetId", o.getAsset().getAssetId(),
-                "assetName", o.getAsset().getAssetName(),
+                "assetName", assetCatalog.name(o.getAsset().getAssetId()),
                 "price", o.getPrice(),
                 "quantity", o.getQuantity(),
                 "type", o.getOrderType(),
@@ -157,13 +217,14 @@ public class TradeController {
     }
 
     @PostMapping("/cancel")
-    public Map<String, Object> cancelOrder(@RequestBody Map<String, Object> payload) {
+    public Map<String, Object> cancelOrder(@RequestBody Map<String, Object> payload, HttpServletRequest request) {
         try {
             Integer orderId = Integer.parseInt(payload.get("orderId").toString());
             Integer userId = Integer.parseInt(payload.get("userId").toString());
-            orderService.cancelOrder(orderId, userId);
+            TradeSequencer.await(tradeSequencer.cancelOrder(orderId, userId));
             return Map.of("message", "Order cancelled successfully");
         } catch (Exception e) {
+            IdempotencyFilter.markFailed(request);
             return Map.of("message", "Cancel failed: " + e.getMessage());
         }
     }
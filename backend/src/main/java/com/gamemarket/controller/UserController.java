@@ -1,21 +1,28 @@
 package com.gamemarket.controller;
 
-import com.gamemarket.entity.MarketOrder;
 import com.gamemarket.entity.Player;
 import com.gamemarket.entity.PlayerAsset;
 import com.gamemarket.entity.Wallet;
-import com.gamemarket.repository.MarketOrderRepository;
 import com.gamemarket.repository.PlayerAssetRepository;
 import com.gamemarket.repository.PlayerRepository;
 import com.gamemarket.repository.WalletRepository;
+import com.gamemarket.service.AssetCatalog;
+import com.gamemarket.service.Money;
+import com.gamemarket.service.OrderBookService;
+import com.gamemarket.service.PortfolioService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import java.math.BigDecimal;
 
 @RestController
 @RequestMapping("/api/users")
@@ -32,7 +39,13 @@ public class UserController {
     private PlayerAssetRepository playerAssetRepository;
 
     @Autowired
-    private MarketOrderRepository marketOrderRepository;
+    private AssetCatalog assetCatalog;
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private PortfolioService portfolioService;
 
     @GetMapping("/{id}")
     public Map<String, Object> getProfile(@PathVariable Integer id) {
@@ -77,28 +90,113 @@ public class UserController {
         return Map.of("message", "Profile updated successfully");
     }
 
+    /**
+     * Items held by a player, each priced at its current best ask from the resident order
+     * books. sort is name, quantity, newest (purchase date), price or price_desc; with page and
+     * size the result is a page object, otherwise the full list.
+     */
     @GetMapping("/{id}/inventory")
-    public List<Map<String, Object>> getInventory(@PathVariable Integer id) {
-        List<PlayerAsset> assets = playerAssetRepository.findByPlayerId(id);
-        List<MarketOrder> openOrders = marketOrderRepository.findByStatus("OPEN");
-
-        return assets.stream().map(pa -> {
-            BigDecimal lowestPrice = openOrders.stream()
-                .filter(o -> o.getAsset().getAssetId().equals(pa.getAsset().getAssetId()) && "SELL".equals(o.getOrderType()))
-                .map(MarketOrder::getPrice)
-                .min(BigDecimal::compareTo)
-                .orElse(null);
-
-            return Map.<String, Object>of(
-                "id", pa.getAsset().getAssetId(),
-                "name", pa.getAsset().getAssetName(),
-                "rarity", pa.getAsset().getAssetType(),
-                "img", "https://via.placeholder.com/150?text=" + pa.getAsset().getAssetName().replace(" ", "+"),
-                "price", lowestPrice != null ? lowestPrice : "暂无报价",
-                "purchaseDate", pa.getPurchaseDate() != null ? pa.getPurchaseDate().toString() : "未知",
-                "quantity", pa.getQuantity(),
-                "reserved", pa.getReservedQuantity() != null ? pa.getReservedQuantity() : 0
+    public Object getInventory(
+            @PathVariable Integer id,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        boolean byPrice = "price".equals(sort) || "price_desc".equals(sort);
+
+        if (page != null && size != null && !byPrice) {
+            // Sorted and paged in SQL; only the page is priced
+            Page<PlayerAsset> assets = playerAssetRepository.findByPlayerId(id, PageRequest.of(page, size, inventorySort(sort)));
+            return Map.of(
+                "content", assets.getContent().stream().map(pa -> mapHoldingToResponse(pa, orderBookService.bestAsk(pa.getAsset().getAssetId()))).collect(Collectors.toList()),
+                "totalPages", assets.getTotalPages(),
+                "totalElements", assets.getTotalElements(),
+                "number", page,
+                "size", size
             );
-        }).collect(Collectors.toList());
+        }
+
+        List<PlayerAsset> assets = playerAssetRepository.findByPlayerId(id, inventorySort(sort));
+        Map<Integer, Long> bestAsks = new HashMap<>();
+        for (PlayerAsset pa : assets) {
+            Long bestAsk = orderBookService.bestAsk(pa.getAsset().getAssetId());
+            if (bestAsk != null) {
+                bestAsks.put(pa.getAsset().getAssetId(), bestAsk);
+            }
+        }
+        if (byPrice) {
+            // Unpriced items last either way
+            Comparator<Long> order = "price".equals(sort) ? Comparator.naturalOrder() : Comparator.reverseOrder();
+            assets = new ArrayList<>(assets);
+            assets.sort(Comparator.comparing((PlayerAsset pa) -> bestAsks.get(pa.getAsset().getAssetId()), Comparator.nullsLast(order)));
+        }
+
+        if (page != null && size != null) {
+            int totalElements = assets.size();
+            int start = Math.min(page * size, totalElements);
+            int end = Math.min(start + size, totalElements);
+            return Map.of(
+                "content", assets.subList(start, end).stream().map(pa -> mapHoldingToResponse(pa, bestAsks.get(pa.getAsset().getAssetId()))).collect(Collectors.toList()),
+                "totalPages", (int) Math.ceil((double) totalElements / size),
+                "totalElements", totalElements,
+                "number", page,
+                "size", size
+            );
+        }
+        return assets.stream().map(pa -> mapHoldingToResponse(pa, bestAsks.get(pa.getAsset().getAssetId()))).collect(Collectors.toList());
+    }
+
+    /**
+     * Holdings with average cost, mark price, market value and unrealized/realized PnL, plus
+     * totals. Totals only include holdings whose cost and mark are known.
+     */
+    @GetMapping("/{id}/portfolio")
+    public Map<String, Object> getPortfolio(@PathVariable Integer id) {
+        List<PortfolioService.Position> positions = portfolioService.positions(id);
+        long costBasis = 0;
+        long marketValue = 0;
+        long unrealized = 0;
+        long realized = 0;
+        for (PortfolioService.Position p : positions) {
+            realized += p.realizedPnl();
+            if (p.unrealizedPnl() != null) {
+                costBasis += p.costBasis();
+                marketValue += p.marketValue();
+                unrealized += p.unrealizedPnl();
+            }
+        }
+        return Map.of(
+            "holdings", positions.stream().map(PortfolioService.Position::toMap).collect(Collectors.toList()),
+            "costBasis", Money.toBigDecimal(costBasis),
+            "marketValue", Money.toBigDecimal(marketValue),
+            "unrealizedPnl", Money.toBigDecimal(unrealized),
+            "realizedPnl", Money.toBigDecimal(realized)
+        );
+    }
+
+    private static Sort inventorySort(String sort) {
+        if ("name".equals(sort)) {
+            return Sort.by(Sort.Order.asc("asset.assetName"), Sort.Order.asc("id"));
+        }
+        if ("quantity".equals(sort)) {
+            return Sort.by(Sort.Order.desc("quantity"), Sort.Order.asc("id"));
+        }
+        if ("newest".equals(sort)) {
+            return Sort.by(Sort.Order.desc("purchaseDate"), Sort.Order.desc("id"));
+        }
+        return Sort.by("id");
+    }
+
+    private Map<String, Object> mapHoldingToResponse(PlayerAsset pa, Long bestAsk) {
+        AssetCatalog.Entry asset = assetCatalog.require(pa.getAsset().getAssetId());
+        return Map.<String, Object>of(
+            "id", asset.assetId(),
+            "name", asset.name(),
+            "rarity", asset.type(),
+            "img", "https://via.placeholder.com/150?text=" + asset.name().replace(" ", "+"),
+            "price", bestAsk != null ? Money.toBigDecimal(bestAsk) : "暂无报价",
+            "purchaseDate", pa.getPurchaseDate() != null ? pa.getPurchaseDate().toString() : "未知",
+            "quantity", pa.getQuantity(),
+            "reserved", pa.getReservedQuantity() != null ? pa.getReservedQuantity() : 0
+        );
     }
 }
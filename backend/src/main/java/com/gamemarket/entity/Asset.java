@@ -1,10 +1,12 @@
 package com.gamemarket.entity;
 
+import com.gamemarket.service.AssetEntityListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 
 @Entity
 @Table(name = "asset")
+@EntityListeners(AssetEntityListener.class)
 public class Asset {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
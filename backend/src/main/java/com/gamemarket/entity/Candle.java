@@ -0,0 +1,79 @@
+package com.gamemarket.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "candle", uniqueConstraints = @UniqueConstraint(name = "uk_candle_asset_resolution_bucket", columnNames = {"asset_id", "resolution", "bucket_start"}))
+public class Candle {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "asset_id", nullable = false)
+    private Integer assetId;
+
+    @Column(name = "resolution", nullable = false, length = 8)
+    private String resolution; // 1m, 1h or 1d
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "open", nullable = false, precision = 18, scale = 2)
+    private BigDecimal open;
+
+    @Column(name = "high", nullable = false, precision = 18, scale = 2)
+    private BigDecimal high;
+
+    @Column(name = "low", nullable = false, precision = 18, scale = 2)
+    private BigDecimal low;
+
+    @Column(name = "close", nullable = false, precision = 18, scale = 2)
+    private BigDecimal close;
+
+    @Column(name = "volume", nullable = false)
+    private Long volume;
+
+    // Sum of price * quantity, so VWAP is turnover / volume
+    @Column(name = "turnover", nullable = false, precision = 24, scale = 2)
+    private BigDecimal turnover;
+
+    @Column(name = "trade_count", nullable = false)
+    private Integer tradeCount;
+
+    // Times of the trades that set open and close, so late trades land in the right place
+    @Column(name = "first_trade_time", nullable = false)
+    private LocalDateTime firstTradeTime;
+
+    @Column(name = "last_trade_time", nullable = false)
+    private LocalDateTime lastTradeTime;
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Integer getAssetId() { return assetId; }
+    public void setAssetId(Integer assetId) { this.assetId = assetId; }
+    public String getResolution() { return resolution; }
+    public void setResolution(String resolution) { this.resolution = resolution; }
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+    public BigDecimal getOpen() { return open; }
+    public void setOpen(BigDecimal open) { this.open = open; }
+    public BigDecimal getHigh() { return high; }
+    public void setHigh(BigDecimal high) { this.high = high; }
+    public BigDecimal getLow() { return low; }
+    public void setLow(BigDecimal low) { this.low = low; }
+    public BigDecimal getClose() { return close; }
+    public void setClose(BigDecimal close) { this.close = close; }
+    public Long getVolume() { return volume; }
+    public void setVolume(Long volume) { this.volume = volume; }
+    public BigDecimal getTurnover() { return turnover; }
+    public void setTurnover(BigDecimal turnover) { this.turnover = turnover; }
+    public Integer getTradeCount() { return tradeCount; }
+    public void setTradeCount(Integer tradeCount) { this.tradeCount = tradeCount; }
+    public LocalDateTime getFirstTradeTime() { return firstTradeTime; }
+    public void setFirstTradeTime(LocalDateTime firstTradeTime) { this.firstTradeTime = firstTradeTime; }
+    public LocalDateTime getLastTradeTime() { return lastTradeTime; }
+    public void setLastTradeTime(LocalDateTime lastTradeTime) { this.lastTradeTime = lastTradeTime; }
+}
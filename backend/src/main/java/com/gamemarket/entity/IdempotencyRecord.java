@@ -0,0 +1,41 @@
+package com.gamemarket.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_key", indexes = @Index(name = "idx_idempotency_key_create_time", columnList = "create_time"))
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "idempotency_key", length = 300)
+    private String key;
+
+    @Column(name = "request_hash", nullable = false)
+    private String requestHash;
+
+    @Column(name = "status", nullable = false)
+    private Integer status;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "body", columnDefinition = "text")
+    private String body;
+
+    @Column(name = "create_time")
+    private LocalDateTime createTime = LocalDateTime.now();
+
+    // Getters and Setters
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+    public String getRequestHash() { return requestHash; }
+    public void setRequestHash(String requestHash) { this.requestHash = requestHash; }
+    public Integer getStatus() { return status; }
+    public void setStatus(Integer status) { this.status = status; }
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    public String getBody() { return body; }
+    public void setBody(String body) { this.body = body; }
+    public LocalDateTime getCreateTime() { return createTime; }
+    public void setCreateTime(LocalDateTime createTime) { this.createTime = createTime; }
+}
@@ -5,7 +5,11 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "market_order")
+@Table(name = "market_order", indexes = {
+    @Index(name = "idx_market_order_asset_status_price", columnList = "asset_id, status, price, order_id"),
+    @Index(name = "idx_market_order_status_price", columnList = "status, price, order_id"),
+    @Index(name = "idx_market_order_player_status", columnList = "player_id, status")
+})
 public class MarketOrder {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -15,7 +19,7 @@ public class MarketOrder {
     @Column(name = "player_id", nullable = false)
     private Integer playerId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "asset_id", nullable = false)
     private Asset asset;
 
@@ -34,6 +38,12 @@ public class MarketOrder {
     @Column(name = "create_time")
     private LocalDateTime createTime = LocalDateTime.now();
 
+    @Column(name = "time_in_force")
+    private String timeInForce = "GTC"; // GTC, IOC, FOK or GTD
+
+    @Column(name = "expire_time")
+    private LocalDateTime expireTime; // only set for GTD orders
+
     // Getters and Setters
     public Integer getOrderId() { return orderId; }
     public void setOrderId(Integer orderId) { this.orderId = orderId; }
@@ -51,4 +61,8 @@ public class MarketOrder {
     public void setStatus(String status) { this.status = status; }
     public LocalDateTime getCreateTime() { return createTime; }
     public void setCreateTime(LocalDateTime createTime) { this.createTime = createTime; }
+    public String getTimeInForce() { return timeInForce; }
+    public void setTimeInForce(String timeInForce) { this.timeInForce = timeInForce; }
+    public LocalDateTime getExpireTime() { return expireTime; }
+    public void setExpireTime(LocalDateTime expireTime) { this.expireTime = expireTime; }
 }
@@ -1,6 +1,7 @@
 package com.gamemarket.entity;
 
 import jakarta.persistence.*;
+import java.math.BigDecimal;
 
 @Entity
 @Table(name = "player_asset")
@@ -12,7 +13,7 @@ public class PlayerAsset {
     @Column(name = "player_id", nullable = false)
     private Integer playerId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "asset_id", nullable = false)
     private Asset asset;
 
@@ -25,6 +26,14 @@ public class PlayerAsset {
     @Column(name = "purchase_date")
     private java.time.LocalDateTime purchaseDate = java.time.LocalDateTime.now();
 
+    // Total cost of the units held; null until PortfolioService has backfilled the row
+    @Column(name = "cost_basis")
+    private BigDecimal costBasis;
+
+    // Profit taken on units sold so far, against their average cost
+    @Column(name = "realized_pnl")
+    private BigDecimal realizedPnl;
+
     // Getters and Setters
     public Integer getId() { return id; }
     public void setId(Integer id) { this.id = id; }
@@ -38,4 +47,8 @@ public class PlayerAsset {
     public void setReservedQuantity(Integer reservedQuantity) { this.reservedQuantity = reservedQuantity; }
     public java.time.LocalDateTime getPurchaseDate() { return purchaseDate; }
     public void setPurchaseDate(java.time.LocalDateTime purchaseDate) { this.purchaseDate = purchaseDate; }
+    public BigDecimal getCostBasis() { return costBasis; }
+    public void setCostBasis(BigDecimal costBasis) { this.costBasis = costBasis; }
+    public BigDecimal getRealizedPnl() { return realizedPnl; }
+    public void setRealizedPnl(BigDecimal realizedPnl) { this.realizedPnl = realizedPnl; }
 }
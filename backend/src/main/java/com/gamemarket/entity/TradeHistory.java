@@ -5,7 +5,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "trade_history")
+@Table(name = "trade_history", indexes = {
+    @Index(name = "idx_trade_history_asset_time", columnList = "asset_id, trade_time"),
+    @Index(name = "idx_trade_history_time", columnList = "trade_time"),
+    @Index(name = "idx_trade_history_buyer_time", columnList = "buyer_player_id, trade_time, trade_id"),
+    @Index(name = "idx_trade_history_seller_time", columnList = "seller_player_id, trade_time, trade_id")
+})
 public class TradeHistory {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,7 +23,7 @@ public class TradeHistory {
     @Column(name = "sell_order_id", nullable = false)
     private Integer sellOrderId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "asset_id", nullable = false)
     private Asset asset;
 
@@ -31,6 +36,13 @@ public class TradeHistory {
     @Column(name = "trade_time")
     private LocalDateTime tradeTime = LocalDateTime.now();
 
+    // Owners of the buy and sell orders, copied here so a player's trades can be read without joining market_order
+    @Column(name = "buyer_player_id")
+    private Integer buyerPlayerId;
+
+    @Column(name = "seller_player_id")
+    private Integer sellerPlayerId;
+
     // Getters and Setters
     public Integer getTradeId() { return tradeId; }
     public void setTradeId(Integer tradeId) { this.tradeId = tradeId; }
@@ -46,4 +58,8 @@ public class TradeHistory {
     public void setQuantity(Integer quantity) { this.quantity = quantity; }
     public LocalDateTime getTradeTime() { return tradeTime; }
     public void setTradeTime(LocalDateTime tradeTime) { this.tradeTime = tradeTime; }
+    public Integer getBuyerPlayerId() { return buyerPlayerId; }
+    public void setBuyerPlayerId(Integer buyerPlayerId) { this.buyerPlayerId = buyerPlayerId; }
+    public Integer getSellerPlayerId() { return sellerPlayerId; }
+    public void setSellerPlayerId(Integer sellerPlayerId) { this.sellerPlayerId = sellerPlayerId; }
 }
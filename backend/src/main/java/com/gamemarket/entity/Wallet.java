@@ -29,4 +29,12 @@ public class Wallet {
 
     public BigDecimal getReserved() { return reserved; }
     public void setReserved(BigDecimal reserved) { this.reserved = reserved; }
+
+    // Optimistic lock for the remaining entity-based writes; the guarded updates in WalletRepository bump it too
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version = 0L;
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
@@ -0,0 +1,18 @@
+package com.gamemarket.repository;
+
+import com.gamemarket.entity.Candle;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CandleRepository extends JpaRepository<Candle, Long> {
+    List<Candle> findByAssetIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(Integer assetId, String resolution, LocalDateTime from, LocalDateTime to, Limit limit);
+
+    List<Candle> findByAssetIdAndResolutionAndBucketStartLessThanEqualOrderByBucketStartAsc(Integer assetId, String resolution, LocalDateTime to);
+
+    List<Candle> findByResolutionAndBucketStartGreaterThanEqualOrderByBucketStartAsc(String resolution, LocalDateTime from);
+}
@@ -2,12 +2,21 @@ package com.gamemarket.repository;
 
 import com.gamemarket.entity.MarketOrder;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface MarketOrderRepository extends JpaRepository<MarketOrder, Integer> {
+public interface MarketOrderRepository extends JpaRepository<MarketOrder, Integer>, JpaSpecificationExecutor<MarketOrder> {
     List<MarketOrder> findByStatus(String status);
+
+    // Per asset: [assetId, order count, total quantity] of the orders in a status
+    @Query("SELECT o.asset.assetId, COUNT(o), COALESCE(SUM(o.quantity), 0) FROM MarketOrder o WHERE o.status = :status GROUP BY o.asset.assetId")
+    List<Object[]> totalsByAsset(@Param("status") String status);
+
     List<MarketOrder> findByPlayerId(Integer playerId);
     List<MarketOrder> findByPlayerIdAndStatus(Integer playerId, String status);
+    List<MarketOrder> findByStatusAndExpireTimeIsNotNull(String status);
 }
@@ -0,0 +1,56 @@
+package com.gamemarket.repository;
+
+import com.gamemarket.entity.MarketOrder;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Building blocks for market order queries, combined with {@link Specification#where} and run
+ * through {@link MarketOrderRepository} so filtering, ordering and limits happen in SQL.
+ * A null argument yields a null specification, which Spring Data ignores.
+ */
+public final class MarketOrderSpecifications {
+
+    private MarketOrderSpecifications() {
+    }
+
+    public static Specification<MarketOrder> hasStatus(String status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<MarketOrder> forAsset(Integer assetId) {
+        if (assetId == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("asset").get("assetId"), assetId);
+    }
+
+    // Asset filters are resolved against the resident catalog, so the asset table is never joined
+    public static Specification<MarketOrder> assetIn(Collection<Integer> assetIds) {
+        if (assetIds == null) {
+            return null;
+        }
+        if (assetIds.isEmpty()) {
+            return (root, query, cb) -> cb.disjunction();
+        }
+        return (root, query, cb) -> root.get("asset").get("assetId").in(assetIds);
+    }
+
+    // Keyset condition: orders strictly after (price, orderId) in price order
+    public static Specification<MarketOrder> afterPrice(BigDecimal price, Integer orderId, boolean descending) {
+        return (root, query, cb) -> descending
+            ? cb.or(cb.lessThan(root.get("price"), price),
+                cb.and(cb.equal(root.get("price"), price), cb.lessThan(root.get("orderId"), orderId)))
+            : cb.or(cb.greaterThan(root.get("price"), price),
+                cb.and(cb.equal(root.get("price"), price), cb.greaterThan(root.get("orderId"), orderId)));
+    }
+
+    // Keyset condition: orders strictly after (createTime, orderId) in newest-first order
+    public static Specification<MarketOrder> olderThan(LocalDateTime createTime, Integer orderId) {
+        return (root, query, cb) -> cb.or(cb.lessThan(root.get("createTime"), createTime),
+            cb.and(cb.equal(root.get("createTime"), createTime), cb.lessThan(root.get("orderId"), orderId)));
+    }
+}
@@ -1,13 +1,23 @@
 package com.gamemarket.repository;
 
 import com.gamemarket.entity.PlayerAsset;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PlayerAssetRepository extends JpaRepository<PlayerAsset, Integer> {
     List<PlayerAsset> findByPlayerId(Integer playerId);
 
+    List<PlayerAsset> findByPlayerId(Integer playerId, Sort sort);
+
+    Page<PlayerAsset> findByPlayerId(Integer playerId, Pageable pageable);
+
     PlayerAsset findByPlayerIdAndAsset_AssetId(Integer playerId, Integer assetId);
+
+    List<PlayerAsset> findByPlayerIdInAndAsset_AssetIdIn(Collection<Integer> playerIds, Collection<Integer> assetIds);
 }
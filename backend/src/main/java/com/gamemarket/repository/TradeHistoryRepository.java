@@ -10,26 +10,60 @@ import java.util.List;
 
 @Repository
 public interface TradeHistoryRepository extends JpaRepository<TradeHistory, Integer> {
-    @Query("SELECT t FROM TradeHistory t WHERE t.buyOrderId IN (SELECT o.orderId FROM MarketOrder o WHERE o.playerId = :playerId) OR t.sellOrderId IN (SELECT o.orderId FROM MarketOrder o WHERE o.playerId = :playerId)")
+    // Rows the buyer/seller backfill has not reached yet are matched through their orders
+    String UNFILLED = "OR (t.buyerPlayerId IS NULL AND t.buyOrderId IN (SELECT o.orderId FROM MarketOrder o WHERE o.playerId = :playerId)) "
+        + "OR (t.sellerPlayerId IS NULL AND t.sellOrderId IN (SELECT o.orderId FROM MarketOrder o WHERE o.playerId = :playerId))";
+
+    // Native form for the keyset queries, limited to rows the buyer/seller branches do not already return
+    String UNFILLED_NATIVE = "(t.buyer_player_id IS NULL OR t.seller_player_id IS NULL) "
+        + "AND t.buyer_player_id IS DISTINCT FROM :playerId AND t.seller_player_id IS DISTINCT FROM :playerId "
+        + "AND (t.buy_order_id IN (SELECT o.order_id FROM market_order o WHERE o.player_id = :playerId) "
+        + "OR t.sell_order_id IN (SELECT o.order_id FROM market_order o WHERE o.player_id = :playerId))";
+
+    @Query("SELECT t FROM TradeHistory t WHERE t.buyerPlayerId = :playerId OR t.sellerPlayerId = :playerId " + UNFILLED)
     List<TradeHistory> findByPlayerId(Integer playerId);
 
-    @Query("SELECT t FROM TradeHistory t WHERE t.buyOrderId IN (SELECT o.orderId FROM MarketOrder o WHERE o.playerId = :playerId) OR t.sellOrderId IN (SELECT o.orderId FROM MarketOrder o WHERE o.playerId = :playerId)")
+    @Query("SELECT t FROM TradeHistory t WHERE t.buyerPlayerId = :playerId OR t.sellerPlayerId = :playerId " + UNFILLED)
     Page<TradeHistory> findByPlayerId(Integer playerId, Pageable pageable);
 
     List<TradeHistory> findByAsset_AssetIdOrderByTradeTimeAsc(Integer assetId);
 
-    @Query(value = "SELECT CAST(trade_time AS DATE) as trade_date, MIN(price) as min_price FROM trade_history WHERE asset_id = :assetId GROUP BY CAST(trade_time AS DATE) ORDER BY trade_date ASC", nativeQuery = true)
-    List<Object[]> findDailyMinPriceByAssetId(Integer assetId);
+    List<TradeHistory> findByAsset_AssetIdAndTradeTimeBetweenOrderByTradeTimeAsc(Integer assetId, java.time.LocalDateTime from, java.time.LocalDateTime to);
 
-    // Sum of quantities for an asset since a given timestamp (used for 24h sales)
-    @Query(value = "SELECT COALESCE(SUM(quantity),0) FROM trade_history WHERE asset_id = :assetId AND trade_time >= :since", nativeQuery = true)
-    Long sumQuantitySince(Integer assetId, java.sql.Timestamp since);
+    // Newest trades of a player: one index range scan per side, plus the rows the backfill has not
+    // reached yet found through their orders. The branches are disjoint, so UNION ALL merges them
+    // without a dedup step.
+    @Query(value = "SELECT * FROM ("
+        + "(SELECT * FROM trade_history WHERE buyer_player_id = :playerId ORDER BY trade_time DESC, trade_id DESC LIMIT :limit) "
+        + "UNION ALL "
+        + "(SELECT * FROM trade_history WHERE seller_player_id = :playerId AND buyer_player_id IS DISTINCT FROM :playerId "
+        + "ORDER BY trade_time DESC, trade_id DESC LIMIT :limit) "
+        + "UNION ALL "
+        + "(SELECT t.* FROM trade_history t WHERE " + UNFILLED_NATIVE + " ORDER BY t.trade_time DESC, t.trade_id DESC LIMIT :limit)"
+        + ") t ORDER BY trade_time DESC, trade_id DESC LIMIT :limit", nativeQuery = true)
+    List<TradeHistory> findLatestByPlayer(Integer playerId, int limit);
 
-    // Latest price for an asset (most recent trade)
-    @Query(value = "SELECT price FROM trade_history WHERE asset_id = :assetId ORDER BY trade_time DESC LIMIT 1", nativeQuery = true)
-    Double findLatestPriceByAssetId(Integer assetId);
+    // Next page after the keyset (trade_time, trade_id) of the last trade already returned
+    @Query(value = "SELECT * FROM ("
+        + "(SELECT * FROM trade_history WHERE buyer_player_id = :playerId AND (trade_time, trade_id) < (:tradeTime, :tradeId) "
+        + "ORDER BY trade_time DESC, trade_id DESC LIMIT :limit) "
+        + "UNION ALL "
+        + "(SELECT * FROM trade_history WHERE seller_player_id = :playerId AND buyer_player_id IS DISTINCT FROM :playerId "
+        + "AND (trade_time, trade_id) < (:tradeTime, :tradeId) ORDER BY trade_time DESC, trade_id DESC LIMIT :limit) "
+        + "UNION ALL "
+        + "(SELECT t.* FROM trade_history t WHERE " + UNFILLED_NATIVE + " AND (t.trade_time, t.trade_id) < (:tradeTime, :tradeId) "
+        + "ORDER BY t.trade_time DESC, t.trade_id DESC LIMIT :limit)"
+        + ") t ORDER BY trade_time DESC, trade_id DESC LIMIT :limit", nativeQuery = true)
+    List<TradeHistory> findByPlayerBefore(Integer playerId, java.time.LocalDateTime tradeTime, Integer tradeId, int limit);
 
-    // Price at or before a given timestamp (useful for price 24h ago)
-    @Query(value = "SELECT price FROM trade_history WHERE asset_id = :assetId AND trade_time <= :before ORDER BY trade_time DESC LIMIT 1", nativeQuery = true)
-    Double findPriceAtOrBefore(Integer assetId, java.sql.Timestamp before);
+    // Fills buyer/seller player ids from market_order for up to :batch rows still missing them
+    @org.springframework.transaction.annotation.Transactional
+    @org.springframework.data.jpa.repository.Modifying
+    @Query(value = "UPDATE trade_history t SET buyer_player_id = b.player_id, seller_player_id = s.player_id "
+        + "FROM market_order b, market_order s "
+        + "WHERE b.order_id = t.buy_order_id AND s.order_id = t.sell_order_id AND t.trade_id IN ("
+        + "SELECT x.trade_id FROM trade_history x WHERE (x.buyer_player_id IS NULL OR x.seller_player_id IS NULL) "
+        + "AND EXISTS (SELECT 1 FROM market_order o WHERE o.order_id = x.buy_order_id) "
+        + "AND EXISTS (SELECT 1 FROM market_order o WHERE o.order_id = x.sell_order_id) LIMIT :batch)", nativeQuery = true)
+    int backfillPlayers(int batch);
 }
@@ -2,9 +2,38 @@ package com.gamemarket.repository;
 
 import com.gamemarket.entity.Wallet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, Integer> {
     Wallet findByPlayerId(Integer playerId);
+
+    boolean existsByPlayerId(Integer playerId);
+
+    // Guarded single-statement mutations: each returns the affected row count (0 = guard failed or no wallet).
+    // WalletService detaches the affected Wallet afterwards, so no stale copy can be read or saved over the update.
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.reserved = COALESCE(w.reserved, 0) + :amount, w.version = w.version + 1 WHERE w.playerId = :playerId AND w.balance - COALESCE(w.reserved, 0) >= :amount")
+    int reserve(Integer playerId, BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.reserved = COALESCE(w.reserved, 0) - :amount, w.version = w.version + 1 WHERE w.playerId = :playerId AND COALESCE(w.reserved, 0) >= :amount")
+    int release(Integer playerId, BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.reserved = COALESCE(w.reserved, 0) - :amount, w.balance = w.balance - :amount, w.version = w.version + 1 WHERE w.playerId = :playerId AND COALESCE(w.reserved, 0) >= :amount")
+    int commit(Integer playerId, BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount, w.version = w.version + 1 WHERE w.playerId = :playerId AND w.balance - COALESCE(w.reserved, 0) >= :amount")
+    int deduct(Integer playerId, BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.balance = COALESCE(w.balance, 0) + :amount, w.version = w.version + 1 WHERE w.playerId = :playerId")
+    int credit(Integer playerId, BigDecimal amount);
 }
@@ -0,0 +1,142 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.Asset;
+import com.gamemarket.repository.AssetRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resident copy of the asset catalog. Orders, trades and holdings only keep the asset id they
+ * point at; names, types and base prices are resolved here instead of joining or selecting the
+ * asset row again on every query.
+ *
+ * The catalog is loaded once at startup and kept current from {@link AssetChangedEvent}s. Every
+ * change advances {@link #version()}, so read models built from catalog data can tell when they
+ * are stale. An id that is not resident yet (an asset inserted outside JPA) is read from the
+ * database on first sight.
+ */
+@Service
+public class AssetCatalog {
+
+    /** Immutable snapshot of one asset row. */
+    public record Entry(Integer assetId, String name, String type, BigDecimal basePrice) {}
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void load() {
+        long start = System.currentTimeMillis();
+        entries.clear();
+        for (Asset asset : assetRepository.findAll()) {
+            entries.put(asset.getAssetId(), entry(asset));
+        }
+        version.incrementAndGet();
+        System.out.println("Asset catalog loaded " + entries.size() + " assets in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    // Ahead of the other asset listeners, so they already resolve the new state
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onAssetChanged(AssetChangedEvent event) {
+        if (event.removed()) {
+            entries.remove(event.assetId());
+        } else {
+            entries.put(event.assetId(), new Entry(event.assetId(), event.assetName(), event.assetType(), event.basePrice()));
+        }
+        version.incrementAndGet();
+    }
+
+    /** Advanced on every change to the catalog. */
+    public long version() {
+        return version.get();
+    }
+
+    /** The asset, or null when it does not exist. */
+    public Entry get(Integer assetId) {
+        if (assetId == null) {
+            return null;
+        }
+        Entry entry = entries.get(assetId);
+        if (entry == null) {
+            entry = assetRepository.findById(assetId).map(AssetCatalog::entry).orElse(null);
+            if (entry != null) {
+                entries.putIfAbsent(assetId, entry);
+            }
+        }
+        return entry;
+    }
+
+    public Entry require(Integer assetId) {
+        Entry entry = get(assetId);
+        if (entry == null) {
+            throw new RuntimeException("Asset not found");
+        }
+        return entry;
+    }
+
+    public String name(Integer assetId) {
+        Entry entry = get(assetId);
+        return entry == null ? null : entry.name();
+    }
+
+    public String type(Integer assetId) {
+        Entry entry = get(assetId);
+        return entry == null ? null : entry.type();
+    }
+
+    public List<Entry> all() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Ids of the assets whose type is {@code category} (ignoring case), or null for a null, empty
+     * or "All" category, which matches every type. Keywords are resolved by
+     * {@link AssetSearchIndex}, so every listing matches names the same way.
+     */
+    public Set<Integer> inCategory(String category) {
+        if (category == null || category.isEmpty() || category.equals("All")) {
+            return null;
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (Entry entry : entries.values()) {
+            if (category.equalsIgnoreCase(entry.type())) {
+                ids.add(entry.assetId());
+            }
+        }
+        return ids;
+    }
+
+    /** Names of the given assets by id; unknown ids are left out. */
+    public Map<Integer, String> names(Collection<Integer> assetIds) {
+        Map<Integer, String> names = new HashMap<>();
+        for (Integer assetId : assetIds) {
+            String name = name(assetId);
+            if (name != null) {
+                names.put(assetId, name);
+            }
+        }
+        return names;
+    }
+
+    private static Entry entry(Asset asset) {
+        return new Entry(asset.getAssetId(), asset.getAssetName(), asset.getAssetType(), asset.getBasePrice());
+    }
+}
@@ -0,0 +1,10 @@
+package com.gamemarket.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Published by AssetEntityListener when an asset row is inserted, updated or deleted, carrying
+ * the asset's new state. Listeners that keep resident copies of the catalog react after the
+ * change commits.
+ */
+public record AssetChangedEvent(Integer assetId, String assetName, String assetType, BigDecimal basePrice, boolean removed) {}
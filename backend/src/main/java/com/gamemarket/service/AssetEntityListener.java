@@ -0,0 +1,31 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.Asset;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on {@link Asset}, instantiated by Spring through Hibernate's bean container, that
+ * turns every write to the catalog into an {@link AssetChangedEvent}.
+ */
+@Component
+public class AssetEntityListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Asset asset) {
+        eventPublisher.publishEvent(new AssetChangedEvent(asset.getAssetId(), asset.getAssetName(), asset.getAssetType(), asset.getBasePrice(), false));
+    }
+
+    @PostRemove
+    public void onRemoved(Asset asset) {
+        eventPublisher.publishEvent(new AssetChangedEvent(asset.getAssetId(), asset.getAssetName(), asset.getAssetType(), asset.getBasePrice(), true));
+    }
+}
@@ -0,0 +1,272 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.Asset;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident search index over the asset catalog. Names are normalized (lowercase, punctuation
+ * as separators) and indexed twice: by word token in a sorted map, which serves exact and
+ * prefix matches ("dragon lo"), and by character trigrams of the name with separators removed,
+ * which serves queries that ignore punctuation ("ak47") and tolerate a typo ("dragn lore").
+ * Results are ranked by how well they matched, so the type-ahead box never scans the catalog.
+ * The index is loaded at startup and kept current from {@link AssetChangedEvent}s.
+ */
+@Service
+public class AssetSearchIndex {
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    // Share of the query's trigrams a name must contain to count as a fuzzy match
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.6;
+
+    private record Doc(Integer assetId, String name, String type, BigDecimal basePrice, String compact, Set<String> tokens) {
+
+        Asset toAsset() {
+            Asset asset = new Asset();
+            asset.setAssetId(assetId);
+            asset.setAssetName(name);
+            asset.setAssetType(type);
+            asset.setBasePrice(basePrice);
+            return asset;
+        }
+    }
+
+    private record Hit(Doc doc, double score) {}
+
+    @Autowired
+    private AssetCatalog assetCatalog;
+
+    private final Map<Integer, Doc> docs = new TreeMap<>();
+    private final TreeMap<String, Set<Integer>> tokens = new TreeMap<>();
+    private final Map<String, Set<Integer>> trigrams = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<AssetCatalog.Entry> assets = assetCatalog.all();
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            tokens.clear();
+            trigrams.clear();
+            for (AssetCatalog.Entry asset : assets) {
+                add(asset.assetId(), asset.name(), asset.type(), asset.basePrice());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Search index built for " + assets.size() + " assets in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssetChanged(AssetChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.assetId());
+            if (!event.removed()) {
+                add(event.assetId(), event.assetName(), event.assetType(), event.basePrice());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Assets matching {@code query}, best match first, at most {@code limit} of them. A blank
+     * query lists the catalog in assetId order.
+     */
+    public List<Asset> search(String query, int limit) {
+        List<Asset> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (normalize(query).isBlank()) {
+                for (Doc doc : docs.values()) {
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                    result.add(doc.toAsset());
+                }
+                return result;
+            }
+            List<Hit> hits = hits(query);
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+                .thenComparingInt(h -> h.doc().name().length())
+                .thenComparing(h -> h.doc().assetId()));
+            for (Hit hit : hits) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(hit.doc().toAsset());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Ids of all assets matching {@code query}, in no particular order. */
+    public Set<Integer> matchingIds(String query) {
+        lock.readLock().lock();
+        try {
+            Set<Integer> ids = new HashSet<>();
+            for (Hit hit : hits(query)) {
+                ids.add(hit.doc().assetId());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the read lock
+    private List<Hit> hits(String query) {
+        String normalized = normalize(query);
+        Set<String> queryTokens = tokenize(normalized);
+        String compact = normalized.replace(" ", "");
+        Set<String> queryTrigrams = trigramsOf(compact);
+
+        // Token matches: 1 per exact token, 2/3 per prefix, counted per query token
+        Map<Integer, Double> tokenScore = new HashMap<>();
+        Map<Integer, Integer> tokensMatched = new HashMap<>();
+        for (String token : queryTokens) {
+            Map<Integer, Double> best = new HashMap<>();
+            for (Map.Entry<String, Set<Integer>> e : tokens.tailMap(token, true).entrySet()) {
+                if (!e.getKey().startsWith(token)) {
+                    break;
+                }
+                double score = e.getKey().length() == token.length() ? 1.0 : 2.0 / 3.0;
+                for (Integer id : e.getValue()) {
+                    best.merge(id, score, Math::max);
+                }
+            }
+            for (Map.Entry<Integer, Double> e : best.entrySet()) {
+                tokenScore.merge(e.getKey(), e.getValue(), Double::sum);
+                tokensMatched.merge(e.getKey(), 1, Integer::sum);
+            }
+        }
+
+        Map<Integer, Integer> sharedTrigrams = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<Integer> ids = trigrams.get(trigram);
+            if (ids != null) {
+                for (Integer id : ids) {
+                    sharedTrigrams.merge(id, 1, Integer::sum);
+                }
+            }
+        }
+
+        Set<Integer> candidates = new LinkedHashSet<>(tokenScore.keySet());
+        candidates.addAll(sharedTrigrams.keySet());
+        List<Hit> hits = new ArrayList<>();
+        for (Integer id : candidates) {
+            Doc doc = docs.get(id);
+            boolean allTokens = tokensMatched.getOrDefault(id, 0) == queryTokens.size();
+            boolean substring = !compact.isEmpty() && doc.compact().contains(compact);
+            double similarity = queryTrigrams.isEmpty() ? 0.0 : (double) sharedTrigrams.getOrDefault(id, 0) / queryTrigrams.size();
+            if (!allTokens && !substring && similarity < MIN_TRIGRAM_SIMILARITY) {
+                continue;
+            }
+            double score = 3.0 * tokenScore.getOrDefault(id, 0.0) / queryTokens.size()
+                + (allTokens ? 2.0 : 0.0)
+                + (substring ? 1.5 : 0.0)
+                + similarity
+                + (doc.compact().startsWith(compact) ? 0.5 : 0.0);
+            hits.add(new Hit(doc, score));
+        }
+        return hits;
+    }
+
+    // Caller holds the write lock
+    private void add(Integer assetId, String name, String type, BigDecimal basePrice) {
+        String normalized = normalize(name);
+        String compact = normalized.replace(" ", "");
+        Doc doc = new Doc(assetId, name, type, basePrice, compact, tokenize(normalized));
+        docs.put(assetId, doc);
+        for (String token : doc.tokens()) {
+            tokens.computeIfAbsent(token, k -> new HashSet<>()).add(assetId);
+        }
+        for (String trigram : trigramsOf(compact)) {
+            trigrams.computeIfAbsent(trigram, k -> new HashSet<>()).add(assetId);
+        }
+    }
+
+    // Caller holds the write lock
+    private void remove(Integer assetId) {
+        Doc doc = docs.remove(assetId);
+        if (doc == null) {
+            return;
+        }
+        for (String token : doc.tokens()) {
+            unlink(tokens, token, assetId);
+        }
+        for (String trigram : trigramsOf(doc.compact())) {
+            unlink(trigrams, trigram, assetId);
+        }
+    }
+
+    private static void unlink(Map<String, Set<Integer>> postings, String key, Integer assetId) {
+        Set<Integer> ids = postings.get(key);
+        if (ids != null) {
+            ids.remove(assetId);
+            if (ids.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    // Lowercase with every run of non letters/digits collapsed into one space
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        return sb.toString().trim();
+    }
+
+    private static Set<String> tokenize(String normalized) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String token : normalized.split(" ")) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> trigramsOf(String compact) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= compact.length(); i++) {
+            result.add(compact.substring(i, i + 3));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.Candle;
+import com.gamemarket.repository.CandleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OHLCV candles at 1 minute, 1 hour and 1 day. Every trade is folded into its three buckets
+ * with an upsert in the trade's own transaction, so the candle table always agrees with
+ * trade_history. An empty table is backfilled from trade_history at startup. Chart reads then
+ * cost one index range scan over a bounded number of buckets.
+ */
+@Service
+public class CandleService {
+
+    public static final int MAX_BUCKETS = 1000;
+
+    // Resolution -> PostgreSQL date_trunc unit
+    private static final Map<String, String> UNITS = Map.of("1m", "minute", "1h", "hour", "1d", "day");
+
+    private static final Map<String, ChronoUnit> CHRONO_UNITS = Map.of("1m", ChronoUnit.MINUTES, "1h", ChronoUnit.HOURS, "1d", ChronoUnit.DAYS);
+
+    private static final String UPSERT =
+        "INSERT INTO candle (asset_id, resolution, bucket_start, open, high, low, close, volume, turnover, trade_count, first_trade_time, last_trade_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 1, ?, ?) "
+            + "ON CONFLICT (asset_id, resolution, bucket_start) DO UPDATE SET "
+            + "open = CASE WHEN EXCLUDED.first_trade_time < candle.first_trade_time THEN EXCLUDED.open ELSE candle.open END, "
+            + "high = GREATEST(candle.high, EXCLUDED.high), "
+            + "low = LEAST(candle.low, EXCLUDED.low), "
+            + "close = CASE WHEN EXCLUDED.last_trade_time >= candle.last_trade_time THEN EXCLUDED.close ELSE candle.close END, "
+            + "volume = candle.volume + EXCLUDED.volume, "
+            + "turnover = candle.turnover + EXCLUDED.turnover, "
+            + "trade_count = candle.trade_count + 1, "
+            + "first_trade_time = LEAST(candle.first_trade_time, EXCLUDED.first_trade_time), "
+            + "last_trade_time = GREATEST(candle.last_trade_time, EXCLUDED.last_trade_time)";
+
+    private static final String BACKFILL =
+        "INSERT INTO candle (asset_id, resolution, bucket_start, open, high, low, close, volume, turnover, trade_count, first_trade_time, last_trade_time) "
+            + "SELECT asset_id, ?, bucket, "
+            + "(array_agg(price ORDER BY trade_time, trade_id))[1], MAX(price), MIN(price), "
+            + "(array_agg(price ORDER BY trade_time DESC, trade_id DESC))[1], "
+            + "SUM(quantity), SUM(price * quantity), COUNT(*), MIN(trade_time), MAX(trade_time) "
+            + "FROM (SELECT trade_id, asset_id, price, quantity, trade_time, date_trunc(?, trade_time) AS bucket FROM trade_history WHERE trade_time IS NOT NULL) t "
+            + "GROUP BY asset_id, bucket "
+            + "ON CONFLICT (asset_id, resolution, bucket_start) DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CandleRepository candleRepository;
+
+    public static boolean isResolution(String resolution) {
+        return UNITS.containsKey(resolution);
+    }
+
+    public static Duration step(String resolution) {
+        return CHRONO_UNITS.get(resolution).getDuration();
+    }
+
+    public static LocalDateTime bucketStart(LocalDateTime time, String resolution) {
+        return time.truncatedTo(CHRONO_UNITS.get(resolution));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void backfill() {
+        Boolean present = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM candle)", Boolean.class);
+        if (Boolean.TRUE.equals(present)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int rows = 0;
+        for (Map.Entry<String, String> e : UNITS.entrySet()) {
+            rows += jdbcTemplate.update(BACKFILL, e.getKey(), e.getValue());
+        }
+        System.out.println("Candles backfilled from trade history: " + rows + " buckets in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onTrade(TradeExecutedEvent event) {
+        BigDecimal price = Money.toBigDecimal(event.price());
+        BigDecimal turnover = Money.toBigDecimal(Money.times(event.price(), event.quantity()));
+        Timestamp tradeTime = Timestamp.valueOf(event.tradeTime());
+        List<String> resolutions = List.copyOf(UNITS.keySet());
+        jdbcTemplate.batchUpdate(UPSERT, resolutions, resolutions.size(), (ps, resolution) -> {
+            ps.setInt(1, event.assetId());
+            ps.setString(2, resolution);
+            ps.setTimestamp(3, Timestamp.valueOf(bucketStart(event.tradeTime(), resolution)));
+            ps.setBigDecimal(4, price);
+            ps.setBigDecimal(5, price);
+            ps.setBigDecimal(6, price);
+            ps.setBigDecimal(7, price);
+            ps.setLong(8, event.quantity());
+            ps.setBigDecimal(9, turnover);
+            ps.setTimestamp(10, tradeTime);
+            ps.setTimestamp(11, tradeTime);
+        });
+    }
+
+    /**
+     * Candles of an asset between {@code from} and {@code to} (bucket starts, inclusive), oldest
+     * first. A missing {@code to} means now and a missing {@code from} means {@link #MAX_BUCKETS}
+     * buckets before {@code to}; at most {@link #MAX_BUCKETS} candles are returned.
+     */
+    public List<Candle> candles(Integer assetId, String resolution, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        LocalDateTime start = from == null ? bucketStart(end, resolution).minus(step(resolution).multipliedBy(MAX_BUCKETS - 1)) : bucketStart(from, resolution);
+        return candleRepository.findByAssetIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(assetId, resolution, start, end, Limit.of(MAX_BUCKETS));
+    }
+
+    /**
+     * Every 1d candle of an asset up to {@code to} (now when missing), from {@code from} or from
+     * the first trading day when missing. Unlike {@link #candles} this is not capped: one row per
+     * day stays small, and /history/daily has always returned the whole history.
+     */
+    public List<Candle> dailyCandles(Integer assetId, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        if (from == null) {
+            return candleRepository.findByAssetIdAndResolutionAndBucketStartLessThanEqualOrderByBucketStartAsc(assetId, "1d", end);
+        }
+        return candleRepository.findByAssetIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(assetId, "1d", bucketStart(from, "1d"), end, Limit.unlimited());
+    }
+}
@@ -0,0 +1,201 @@
+package com.gamemarket.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Category facets for the market sidebar: per asset type, the number of listed assets (those
+ * with resting orders), the number of open orders and the range of resting prices. Each asset's
+ * contribution is recomputed from its order book whenever the book changes, so counts are kept
+ * incrementally instead of grouping market_order on every page load. The listed assets of each
+ * category also serve category-filtered listings. A category is known while at least one asset
+ * has its type, and is dropped once the last one is removed or changes type.
+ */
+@Service
+public class CategoryFacetService {
+
+    /** Figures of one category; prices are fixed-point hundredths (see Money) and null when nothing is listed. */
+    public record Facet(String category, int assets, int orders, Long minPrice, Long maxPrice) {
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("category", category);
+            map.put("assets", assets);
+            map.put("orders", orders);
+            map.put("minPrice", minPrice == null ? null : Money.toBigDecimal(minPrice));
+            map.put("maxPrice", maxPrice == null ? null : Money.toBigDecimal(maxPrice));
+            return map;
+        }
+    }
+
+    // What one listed asset adds to its category
+    private record Contribution(String key, int orders, long low, long high) {}
+
+    private static class Bucket {
+        final String category;
+        // Every asset of the type, listed or not
+        final Set<Integer> members = new HashSet<>();
+        // The listed ones
+        final NavigableSet<Integer> assets = new ConcurrentSkipListSet<>();
+        int orders;
+        // Multisets of the assets' lowest and highest resting prices
+        final TreeMap<Long, Integer> lows = new TreeMap<>();
+        final TreeMap<Long, Integer> highs = new TreeMap<>();
+
+        Bucket(String category) {
+            this.category = category;
+        }
+
+        void add(Integer assetId, Contribution c) {
+            assets.add(assetId);
+            orders += c.orders();
+            lows.merge(c.low(), 1, Integer::sum);
+            highs.merge(c.high(), 1, Integer::sum);
+        }
+
+        void remove(Integer assetId, Contribution c) {
+            assets.remove(assetId);
+            orders -= c.orders();
+            lows.computeIfPresent(c.low(), (k, n) -> n == 1 ? null : n - 1);
+            highs.computeIfPresent(c.high(), (k, n) -> n == 1 ? null : n - 1);
+        }
+
+        Facet snapshot() {
+            return new Facet(category, assets.size(), orders,
+                lows.isEmpty() ? null : lows.firstKey(),
+                highs.isEmpty() ? null : highs.lastKey());
+        }
+    }
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private AssetCatalog assetCatalog;
+
+    // Keyed by lowercase asset type
+    private final Map<String, Bucket> buckets = new TreeMap<>();
+    private final Map<Integer, String> assetTypes = new HashMap<>();
+    private final Map<Integer, Contribution> contributions = new HashMap<>();
+
+    // After the books are loaded
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(7)
+    public synchronized void rebuild() {
+        buckets.clear();
+        assetTypes.clear();
+        contributions.clear();
+        for (AssetCatalog.Entry asset : assetCatalog.all()) {
+            type(asset.assetId(), asset.type());
+        }
+        for (Integer assetId : orderBookService.assetIds()) {
+            refresh(assetId);
+        }
+    }
+
+    @EventListener
+    public synchronized void onBookChanged(OrderBookChangedEvent event) {
+        refresh(event.assetId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAssetChanged(AssetChangedEvent event) {
+        Contribution old = contributions.remove(event.assetId());
+        if (old != null) {
+            buckets.get(old.key()).remove(event.assetId(), old);
+        }
+        untype(event.assetId());
+        if (!event.removed()) {
+            type(event.assetId(), event.assetType());
+            refresh(event.assetId());
+        }
+    }
+
+    /** Facets of every known category, by category name. */
+    public synchronized List<Facet> facets() {
+        List<Facet> result = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets.values()) {
+            result.add(bucket.snapshot());
+        }
+        return result;
+    }
+
+    /** Names of every known category, as stored on the assets. */
+    public synchronized List<String> categories() {
+        List<String> result = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets.values()) {
+            result.add(bucket.category);
+        }
+        return result;
+    }
+
+    /** Ids of the listed assets of a category (case-insensitive), ascending; empty for an unknown category. */
+    public synchronized NavigableSet<Integer> listedAssets(String category) {
+        Bucket bucket = buckets.get(category.toLowerCase());
+        return bucket == null ? new ConcurrentSkipListSet<>() : bucket.assets;
+    }
+
+    // Caller holds the monitor
+    private void refresh(Integer assetId) {
+        String key = key(assetId);
+        Contribution old = contributions.remove(assetId);
+        if (old != null) {
+            buckets.get(old.key()).remove(assetId, old);
+        }
+        Long low = orderBookService.lowestPrice(assetId);
+        Long high = orderBookService.highestPrice(assetId);
+        if (key == null || low == null || high == null) {
+            return;
+        }
+        Contribution c = new Contribution(key, orderBookService.orderCount(assetId), low, high);
+        contributions.put(assetId, c);
+        buckets.get(key).add(assetId, c);
+    }
+
+    // Caller holds the monitor; assets created after startup are picked up on first sight
+    private String key(Integer assetId) {
+        String key = assetTypes.get(assetId);
+        if (key == null) {
+            key = type(assetId, assetCatalog.type(assetId));
+        }
+        return key;
+    }
+
+    private String type(Integer assetId, String type) {
+        if (type == null) {
+            return null;
+        }
+        String key = type.toLowerCase();
+        assetTypes.put(assetId, key);
+        buckets.computeIfAbsent(key, k -> new Bucket(type)).members.add(assetId);
+        return key;
+    }
+
+    // Caller holds the monitor and has already taken the asset's contribution out
+    private void untype(Integer assetId) {
+        String key = assetTypes.remove(assetId);
+        if (key == null) {
+            return;
+        }
+        Bucket bucket = buckets.get(key);
+        bucket.members.remove(assetId);
+        if (bucket.members.isEmpty()) {
+            buckets.remove(key);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.IdempotencyRecord;
+import com.gamemarket.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Responses already sent for an Idempotency-Key. Recent keys live in a bounded LRU map whose
+ * entries expire after the TTL; with persistence on, completed responses are also written to
+ * the idempotency_key table so a retry after a restart still gets the original answer.
+ * Keys whose first request is still running are tracked separately so a concurrent duplicate
+ * can be turned away instead of executing twice.
+ */
+@Component
+public class IdempotencyStore {
+
+    public record StoredResponse(String requestHash, int status, String contentType, byte[] body, long createdMillis) {}
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Value("${market.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${market.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${market.idempotency.persist:false}")
+    private boolean persist;
+
+    private final Set<String> inFlight = new HashSet<>();
+
+    private final LinkedHashMap<String, StoredResponse> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // Completed response for the key, from memory first and then from the table; null if none or expired
+    public StoredResponse lookup(String key) {
+        StoredResponse cached = cached(key);
+        if (cached != null || !persist) {
+            return cached;
+        }
+        IdempotencyRecord record = recordRepository.findById(key).orElse(null);
+        if (record == null) {
+            return null;
+        }
+        long created = record.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (expired(created)) {
+            return null;
+        }
+        byte[] body = record.getBody() == null ? new byte[0] : record.getBody().getBytes(StandardCharsets.UTF_8);
+        StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getStatus(), record.getContentType(), body, created);
+        synchronized (this) {
+            cache.put(key, stored);
+        }
+        return stored;
+    }
+
+    public synchronized StoredResponse cached(String key) {
+        StoredResponse stored = cache.get(key);
+        if (stored != null && expired(stored.createdMillis())) {
+            cache.remove(key);
+            return null;
+        }
+        return stored;
+    }
+
+    // Marks the key as running; false if another request with the same key is already running
+    public synchronized boolean begin(String key) {
+        return inFlight.add(key);
+    }
+
+    public void complete(String key, StoredResponse response) {
+        synchronized (this) {
+            cache.put(key, response);
+            inFlight.remove(key);
+        }
+        if (persist) {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setKey(key);
+            record.setRequestHash(response.requestHash());
+            record.setStatus(response.status());
+            record.setContentType(response.contentType());
+            record.setBody(new String(response.body(), StandardCharsets.UTF_8));
+            recordRepository.save(record);
+        }
+    }
+
+    public synchronized void abandon(String key) {
+        inFlight.remove(key);
+    }
+
+    @Scheduled(fixedDelayString = "${market.idempotency.purge-interval-ms:600000}")
+    public void purge() {
+        synchronized (this) {
+            cache.values().removeIf(r -> expired(r.createdMillis()));
+        }
+        if (persist) {
+            recordRepository.deleteOlderThan(LocalDateTime.now().minusSeconds(ttlSeconds));
+        }
+    }
+
+    private boolean expired(long createdMillis) {
+        return System.currentTimeMillis() - createdMillis > ttlSeconds * 1000;
+    }
+}
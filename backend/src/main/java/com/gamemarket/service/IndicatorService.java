@@ -0,0 +1,531 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.Candle;
+import com.gamemarket.repository.CandleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Technical indicators per asset, updated as each trade arrives: simple and exponential moving
+ * averages over the last N trades and over time windows of one-minute closes, volume-weighted
+ * average price over the last hour and day, and volatility (standard deviation of log returns)
+ * over the last N trades. Every asset keeps fixed-size state: a price ring per SMA, one value
+ * per EMA, a return ring, and a ring of 1440 one-minute turnover/volume buckets for VWAP. A
+ * bounded series of recent values is kept for charts. At startup the trade-count state is
+ * replayed from each asset's latest trades, and the VWAP buckets and minute closes are seeded
+ * from the 1m candles.
+ */
+@Service
+public class IndicatorService {
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final int HOUR_MINUTES = 60;
+    private static final int DAY_MINUTES = 1440;
+
+    private static final String LATEST_TRADES =
+        "SELECT price, quantity, trade_time FROM trade_history WHERE asset_id = ? AND trade_time IS NOT NULL "
+            + "ORDER BY trade_time DESC, trade_id DESC LIMIT ?";
+
+    /** Indicator values after one trade; prices in currency units, null until enough trades (or minutes) were seen. */
+    public record Point(LocalDateTime time, double price, Double[] sma, Double[] ema, Double[] timeSma, Double[] timeEma,
+                        Double vwap1h, Double vwap24h, Double volatility) {}
+
+    // Mean of the last n prices, kept as a running sum over a ring
+    private static class Sma {
+        final long[] ring;
+        long sum;
+        int count;
+        int next;
+
+        Sma(int n) {
+            ring = new long[n];
+        }
+
+        void add(long price) {
+            if (count == ring.length) {
+                sum -= ring[next];
+            } else {
+                count++;
+            }
+            ring[next] = price;
+            sum += price;
+            next = (next + 1) % ring.length;
+        }
+
+        // The same n prices repeated k times; only the last n can still be in the ring
+        void repeat(long price, long k) {
+            for (long i = 0; i < Math.min(k, ring.length); i++) {
+                add(price);
+            }
+        }
+
+        Double value() {
+            return count < ring.length ? null : Money.toDouble(sum) / ring.length;
+        }
+
+        // Value as if price were added next, without adding it
+        Double peek(long price) {
+            if (count + 1 < ring.length) {
+                return null;
+            }
+            long s = sum + price - (count == ring.length ? ring[next] : 0);
+            return Money.toDouble(s) / ring.length;
+        }
+    }
+
+    // Seeded with the SMA of the first n prices, then smoothed with 2 / (n + 1)
+    private static class Ema {
+        final int n;
+        final double alpha;
+        double value;
+        long seedSum;
+        int count;
+
+        Ema(int n) {
+            this.n = n;
+            this.alpha = 2.0 / (n + 1);
+        }
+
+        void add(long price) {
+            count++;
+            if (count < n) {
+                seedSum += price;
+            } else if (count == n) {
+                value = Money.toDouble(seedSum + price) / n;
+            } else {
+                value += alpha * (Money.toDouble(price) - value);
+            }
+        }
+
+        // k repeats of one price; once seeded this is value moved (1 - (1 - alpha)^k) of the way to price
+        void repeat(long price, long k) {
+            for (; k > 0 && count < n; k--) {
+                add(price);
+            }
+            if (k > 0) {
+                double p = Money.toDouble(price);
+                value = p + (value - p) * Math.pow(1 - alpha, k);
+                count += (int) Math.min(k, Integer.MAX_VALUE - count);
+            }
+        }
+
+        Double value() {
+            return count < n ? null : value;
+        }
+
+        // Value as if price were added next, without adding it
+        Double peek(long price) {
+            if (count + 1 < n) {
+                return null;
+            }
+            if (count + 1 == n) {
+                return Money.toDouble(seedSum + price) / n;
+            }
+            return value + alpha * (Money.toDouble(price) - value);
+        }
+    }
+
+    /**
+     * SMA and EMA per time window over one-minute closes. A finished minute is fed to the
+     * averages once; minutes without trades repeat the previous close. The minute in progress
+     * counts with its latest price, so values move with every trade.
+     */
+    private static class MinuteCloses {
+        final Sma[] sma;
+        final Ema[] ema;
+        long minute = Long.MIN_VALUE;
+        long close;
+
+        MinuteCloses(int[] windows) {
+            sma = new Sma[windows.length];
+            ema = new Ema[windows.length];
+            for (int i = 0; i < windows.length; i++) {
+                sma[i] = new Sma(windows[i]);
+                ema[i] = new Ema(windows[i]);
+            }
+        }
+
+        // Trades older than the minute in progress no longer change any close
+        void add(long bucket, long price) {
+            if (bucket < minute) {
+                return;
+            }
+            advance(bucket);
+            minute = bucket;
+            close = price;
+        }
+
+        // Finishes the minute in progress and every empty minute before bucket
+        void advance(long bucket) {
+            if (minute == Long.MIN_VALUE || bucket <= minute) {
+                return;
+            }
+            for (int i = 0; i < sma.length; i++) {
+                sma[i].repeat(close, bucket - minute);
+                ema[i].repeat(close, bucket - minute);
+            }
+            minute = bucket;
+        }
+
+        Double[] sma() {
+            Double[] values = new Double[sma.length];
+            for (int i = 0; i < sma.length && minute != Long.MIN_VALUE; i++) {
+                values[i] = sma[i].peek(close);
+            }
+            return values;
+        }
+
+        Double[] ema() {
+            Double[] values = new Double[ema.length];
+            for (int i = 0; i < ema.length && minute != Long.MIN_VALUE; i++) {
+                values[i] = ema[i].peek(close);
+            }
+            return values;
+        }
+    }
+
+    // Sample standard deviation of the last n log returns
+    private static class Volatility {
+        final double[] ring;
+        double sum;
+        double sumSq;
+        int count;
+        int next;
+        long lastPrice;
+
+        Volatility(int n) {
+            ring = new double[n];
+        }
+
+        void add(long price) {
+            if (lastPrice > 0 && price > 0) {
+                double r = Math.log((double) price / lastPrice);
+                if (count == ring.length) {
+                    sum -= ring[next];
+                    sumSq -= ring[next] * ring[next];
+                } else {
+                    count++;
+                }
+                ring[next] = r;
+                sum += r;
+                sumSq += r * r;
+                next = (next + 1) % ring.length;
+                // Running sums drift; resum once per lap
+                if (next == 0) {
+                    sum = 0;
+                    sumSq = 0;
+                    for (double v : ring) {
+                        sum += v;
+                        sumSq += v * v;
+                    }
+                }
+            }
+            lastPrice = price;
+        }
+
+        Double value() {
+            if (count < ring.length || ring.length < 2) {
+                return null;
+            }
+            double variance = (sumSq - sum * sum / count) / (count - 1);
+            return Math.sqrt(Math.max(variance, 0.0));
+        }
+    }
+
+    // Turnover and volume per minute for the last 1440 minutes, with 1h and 24h running totals
+    private static class VwapRing {
+        final long[] slotBucket = new long[DAY_MINUTES];
+        final long[] turnover = new long[DAY_MINUTES];
+        final long[] volume = new long[DAY_MINUTES];
+        long hourTurnover;
+        long hourVolume;
+        long dayTurnover;
+        long dayVolume;
+        long head = Long.MIN_VALUE;
+
+        VwapRing() {
+            Arrays.fill(slotBucket, Long.MIN_VALUE);
+        }
+
+        void add(long bucket, long bTurnover, long bVolume) {
+            advance(bucket);
+            if (bucket <= head - DAY_MINUTES) {
+                return;
+            }
+            int slot = (int) Math.floorMod(bucket, (long) DAY_MINUTES);
+            if (slotBucket[slot] != bucket) {
+                slotBucket[slot] = bucket;
+                turnover[slot] = 0;
+                volume[slot] = 0;
+            }
+            turnover[slot] += bTurnover;
+            volume[slot] += bVolume;
+            dayTurnover += bTurnover;
+            dayVolume += bVolume;
+            if (bucket > head - HOUR_MINUTES) {
+                hourTurnover += bTurnover;
+                hourVolume += bVolume;
+            }
+        }
+
+        // Drops the buckets that leave each window as the newest minute moves forward
+        void advance(long bucket) {
+            if (bucket <= head) {
+                return;
+            }
+            if (head == Long.MIN_VALUE || bucket - head >= DAY_MINUTES) {
+                hourTurnover = hourVolume = dayTurnover = dayVolume = 0;
+                head = bucket;
+                return;
+            }
+            for (long b = head + 1; b <= bucket; b++) {
+                expire(b - HOUR_MINUTES, true);
+                expire(b - DAY_MINUTES, false);
+            }
+            head = bucket;
+        }
+
+        private void expire(long bucket, boolean hour) {
+            int slot = (int) Math.floorMod(bucket, (long) DAY_MINUTES);
+            if (slotBucket[slot] != bucket) {
+                return;
+            }
+            if (hour) {
+                hourTurnover -= turnover[slot];
+                hourVolume -= volume[slot];
+            } else {
+                dayTurnover -= turnover[slot];
+                dayVolume -= volume[slot];
+            }
+        }
+
+        Double vwap(boolean hour) {
+            long t = hour ? hourTurnover : dayTurnover;
+            long v = hour ? hourVolume : dayVolume;
+            return v <= 0 ? null : Money.toDouble(t) / v;
+        }
+    }
+
+    private class AssetIndicators {
+        final Sma[] sma = new Sma[periods.length];
+        final Ema[] ema = new Ema[periods.length];
+        final Volatility volatility = new Volatility(volatilityWindow);
+        final VwapRing vwap = new VwapRing();
+        final MinuteCloses closes = new MinuteCloses(timeWindows);
+        final ArrayDeque<Point> series = new ArrayDeque<>();
+        long trades;
+
+        AssetIndicators() {
+            for (int i = 0; i < periods.length; i++) {
+                sma[i] = new Sma(periods[i]);
+                ema[i] = new Ema(periods[i]);
+            }
+        }
+
+        // Caller holds the monitor; withVwap is false while replaying trades already covered by the candles,
+        // withCloses while replaying trades older than the candles that seed the minute closes
+        void add(long price, int quantity, LocalDateTime time, boolean withVwap, boolean withCloses) {
+            trades++;
+            for (int i = 0; i < periods.length; i++) {
+                sma[i].add(price);
+                ema[i].add(price);
+            }
+            volatility.add(price);
+            long bucket = Math.floorDiv(toMillis(time), MINUTE_MS);
+            if (withVwap) {
+                vwap.add(bucket, Money.times(price, quantity), quantity);
+            }
+            if (withCloses) {
+                closes.add(bucket, price);
+            }
+            if (series.size() >= seriesSize) {
+                series.pollFirst();
+            }
+            series.addLast(point(time, price, withVwap));
+        }
+
+        Point point(LocalDateTime time, long price, boolean withVwap) {
+            Double[] smaValues = new Double[periods.length];
+            Double[] emaValues = new Double[periods.length];
+            for (int i = 0; i < periods.length; i++) {
+                smaValues[i] = sma[i].value();
+                emaValues[i] = ema[i].value();
+            }
+            return new Point(time, Money.toDouble(price), smaValues, emaValues, closes.sma(), closes.ema(),
+                withVwap ? vwap.vwap(true) : null, withVwap ? vwap.vwap(false) : null, volatility.value());
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CandleRepository candleRepository;
+
+    @Value("${market.indicators.periods:20,50}")
+    private int[] periods;
+
+    // Time windows in minutes for the SMA/EMA over one-minute closes
+    @Value("${market.indicators.time-windows:60,1440}")
+    private int[] timeWindows;
+
+    @Value("${market.indicators.volatility-window:20}")
+    private int volatilityWindow;
+
+    @Value("${market.indicators.series-size:500}")
+    private int seriesSize;
+
+    private final Map<Integer, AssetIndicators> indicators = new ConcurrentHashMap<>();
+
+    // After the candle backfill, so VWAP can be seeded from the 1m candles
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(4)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        indicators.clear();
+        int replayLimit = Math.max(seriesSize, volatilityWindow + 1);
+        for (int period : periods) {
+            replayLimit = Math.max(replayLimit, period);
+        }
+        int seedMinutes = DAY_MINUTES;
+        for (int window : timeWindows) {
+            seedMinutes = Math.max(seedMinutes, window);
+        }
+        LocalDateTime seedFrom = LocalDateTime.now().minusMinutes(seedMinutes);
+        long replayed = 0;
+        for (Integer assetId : jdbcTemplate.queryForList("SELECT asset_id FROM asset", Integer.class)) {
+            List<Object[]> latest = jdbcTemplate.query(LATEST_TRADES, (rs, i) -> new Object[]{
+                Money.of(rs.getBigDecimal("price")), rs.getInt("quantity"), rs.getTimestamp("trade_time").toLocalDateTime()
+            }, assetId, replayLimit);
+            if (latest.isEmpty()) {
+                continue;
+            }
+            AssetIndicators state = indicators.computeIfAbsent(assetId, k -> new AssetIndicators());
+            synchronized (state) {
+                for (int i = latest.size() - 1; i >= 0; i--) {
+                    Object[] t = latest.get(i);
+                    LocalDateTime time = (LocalDateTime) t[2];
+                    state.add((Long) t[0], (Integer) t[1], time, false, time.isBefore(seedFrom));
+                }
+            }
+            replayed += latest.size();
+        }
+        for (Candle c : candleRepository.findByResolutionAndBucketStartGreaterThanEqualOrderByBucketStartAsc("1m", seedFrom)) {
+            AssetIndicators state = indicators.computeIfAbsent(c.getAssetId(), k -> new AssetIndicators());
+            long bucket = Math.floorDiv(toMillis(c.getBucketStart()), MINUTE_MS);
+            synchronized (state) {
+                state.vwap.add(bucket, Money.of(c.getTurnover()), c.getVolume());
+                state.closes.add(bucket, Money.of(c.getClose()));
+            }
+        }
+        System.out.println("Indicators warmed up for " + indicators.size() + " assets from " + replayed + " trades in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrade(TradeExecutedEvent event) {
+        AssetIndicators state = indicators.computeIfAbsent(event.assetId(), k -> new AssetIndicators());
+        synchronized (state) {
+            state.add(event.price(), event.quantity(), event.tradeTime(), true, true);
+        }
+    }
+
+    /**
+     * Current indicator values of an asset as a response map, with SMA/EMA keyed by period in
+     * trades and by time window (e.g. "1h", "24h").
+     */
+    public Map<String, Object> current(Integer assetId) {
+        AssetIndicators state = indicators.get(assetId);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("assetId", assetId);
+        if (state == null) {
+            map.put("trades", 0);
+            return map;
+        }
+        synchronized (state) {
+            long now = Math.floorDiv(System.currentTimeMillis(), MINUTE_MS);
+            state.vwap.advance(now);
+            state.closes.advance(now);
+            Point last = state.series.peekLast();
+            map.put("trades", state.trades);
+            map.put("last", last == null ? null : last.price());
+            map.put("time", last == null ? null : last.time());
+            Map<String, Object> sma = new LinkedHashMap<>();
+            Map<String, Object> ema = new LinkedHashMap<>();
+            for (int i = 0; i < periods.length; i++) {
+                sma.put(String.valueOf(periods[i]), state.sma[i].value());
+                ema.put(String.valueOf(periods[i]), state.ema[i].value());
+            }
+            Double[] timeSma = state.closes.sma();
+            Double[] timeEma = state.closes.ema();
+            for (int i = 0; i < timeWindows.length; i++) {
+                sma.put(windowLabel(timeWindows[i]), timeSma[i]);
+                ema.put(windowLabel(timeWindows[i]), timeEma[i]);
+            }
+            map.put("sma", sma);
+            map.put("ema", ema);
+            Map<String, Object> vwap = new LinkedHashMap<>();
+            vwap.put("1h", state.vwap.vwap(true));
+            vwap.put("24h", state.vwap.vwap(false));
+            map.put("vwap", vwap);
+            map.put("volatility", state.volatility.value());
+            map.put("volatilityWindow", volatilityWindow);
+        }
+        return map;
+    }
+
+    /** Up to {@code limit} most recent indicator points of an asset, oldest first. */
+    public List<Map<String, Object>> series(Integer assetId, int limit) {
+        AssetIndicators state = indicators.get(assetId);
+        if (state == null) {
+            return List.of();
+        }
+        List<Point> points;
+        synchronized (state) {
+            points = new ArrayList<>(state.series);
+        }
+        List<Map<String, Object>> result = new ArrayList<>(Math.min(limit, points.size()));
+        for (Point p : points.subList(Math.max(0, points.size() - limit), points.size())) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("time", p.time());
+            map.put("price", p.price());
+            for (int i = 0; i < periods.length; i++) {
+                map.put("sma" + periods[i], p.sma()[i]);
+                map.put("ema" + periods[i], p.ema()[i]);
+            }
+            for (int i = 0; i < timeWindows.length; i++) {
+                map.put("sma" + windowLabel(timeWindows[i]), p.timeSma()[i]);
+                map.put("ema" + windowLabel(timeWindows[i]), p.timeEma()[i]);
+            }
+            map.put("vwap1h", p.vwap1h());
+            map.put("vwap24h", p.vwap24h());
+            map.put("volatility", p.volatility());
+            result.add(map);
+        }
+        return result;
+    }
+
+    // Window in minutes as a key: whole hours as "1h", "24h", anything else as "15m"
+    private static String windowLabel(int minutes) {
+        return minutes % 60 == 0 ? (minutes / 60) + "h" : minutes + "m";
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
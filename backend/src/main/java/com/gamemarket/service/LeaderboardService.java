@@ -0,0 +1,197 @@
+package com.gamemarket.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Ranked sets of listed assets (those with resting orders) for the "hot" (24h volume),
+ * "gainers" and "losers" (24h change) sorts, overall and per category. Each board is a skip
+ * list ordered by score plus an index by assetId, so an asset is repositioned in O(log n)
+ * whenever one of its trades lands or its book changes, and the top K are read in O(K).
+ * Scores also move as trades age out of the 24h window, so every member is re-scored once a
+ * minute, which is the granularity of {@link RollingStatsService}. An asset whose type changes
+ * moves to its new category's boards.
+ */
+@Service
+public class LeaderboardService {
+
+    public static final List<String> BOARDS = List.of("hot", "gainers", "losers");
+
+    private record Rank(Integer assetId, double score) {}
+
+    private static class Board {
+        final ConcurrentSkipListSet<Rank> ranks;
+        final Map<Integer, Rank> index = new ConcurrentHashMap<>();
+
+        Board(boolean descending) {
+            Comparator<Rank> byScore = Comparator.comparingDouble(Rank::score);
+            this.ranks = new ConcurrentSkipListSet<>((descending ? byScore.reversed() : byScore).thenComparing(Rank::assetId));
+        }
+
+        synchronized void put(Integer assetId, double score) {
+            Rank old = index.get(assetId);
+            if (old != null) {
+                if (old.score() == score) {
+                    return;
+                }
+                ranks.remove(old);
+            }
+            Rank rank = new Rank(assetId, score);
+            ranks.add(rank);
+            index.put(assetId, rank);
+        }
+
+        synchronized void remove(Integer assetId) {
+            Rank old = index.remove(assetId);
+            if (old != null) {
+                ranks.remove(old);
+            }
+        }
+    }
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private RollingStatsService rollingStatsService;
+
+    @Autowired
+    private AssetCatalog assetCatalog;
+
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    // Category each ranked asset is on the boards of, so a type change can move it
+    private final Map<Integer, String> rankedCategories = new ConcurrentHashMap<>();
+
+    // After the books and rolling stats are loaded
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(6)
+    public void rebuild() {
+        boards.clear();
+        rankedCategories.clear();
+        for (Integer assetId : orderBookService.assetIds()) {
+            refresh(assetId);
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(OrderBookChangedEvent event) {
+        refresh(event.assetId());
+    }
+
+    // Ordered after RollingStatsService so the new trade is already in the stats
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(10)
+    public void onTrade(TradeExecutedEvent event) {
+        refresh(event.assetId());
+    }
+
+    // After AssetCatalog, so the asset is re-ranked under its new category
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(10)
+    public void onAssetChanged(AssetChangedEvent event) {
+        refresh(event.assetId());
+    }
+
+    @Scheduled(fixedRate = 60_000L, initialDelay = 60_000L)
+    public void decay() {
+        for (Integer assetId : List.copyOf(board("hot", null).index.keySet())) {
+            refresh(assetId);
+        }
+    }
+
+    /**
+     * Asset ids of a board from {@code offset}, at most {@code count} of them, best first.
+     * A null or "All" category reads the overall board.
+     */
+    public List<Integer> top(String name, String category, int offset, int count) {
+        List<Integer> result = new ArrayList<>(Math.max(0, Math.min(count, 100)));
+        Board board = existingBoard(name, category);
+        if (board == null) {
+            return result;
+        }
+        Iterator<Rank> it = board.ranks.iterator();
+        for (int i = 0; it.hasNext() && result.size() < count; i++) {
+            Rank rank = it.next();
+            if (i >= offset) {
+                result.add(rank.assetId());
+            }
+        }
+        return result;
+    }
+
+    public int size(String name, String category) {
+        Board board = existingBoard(name, category);
+        return board == null ? 0 : board.ranks.size();
+    }
+
+    private void refresh(Integer assetId) {
+        String category = category(assetId);
+        String previous = rankedCategories.get(assetId);
+        if (previous != null && !previous.equals(category)) {
+            removeFrom(previous, assetId);
+            rankedCategories.remove(assetId);
+        }
+        if (orderBookService.lowestPrice(assetId) == null) {
+            for (String name : BOARDS) {
+                board(name, null).remove(assetId);
+            }
+            if (category != null) {
+                removeFrom(category, assetId);
+                rankedCategories.remove(assetId);
+            }
+            return;
+        }
+        if (category != null) {
+            rankedCategories.put(assetId, category);
+        }
+        RollingStatsService.WindowStats day = rollingStatsService.stats(assetId).day();
+        double change = day.change();
+        for (String name : BOARDS) {
+            double score = "hot".equals(name) ? day.volume() : change;
+            board(name, null).put(assetId, score);
+            if (category != null) {
+                board(name, category).put(assetId, score);
+            }
+        }
+    }
+
+    private void removeFrom(String category, Integer assetId) {
+        for (String name : BOARDS) {
+            Board board = existingBoard(name, category);
+            if (board != null) {
+                board.remove(assetId);
+            }
+        }
+    }
+
+    private Board board(String name, String category) {
+        return boards.computeIfAbsent(key(name, category), k -> new Board(!"losers".equals(name)));
+    }
+
+    // Read path: unknown names and categories are never materialized
+    private Board existingBoard(String name, String category) {
+        return boards.get(key(name, category));
+    }
+
+    private static String key(String name, String category) {
+        return category == null || category.isEmpty() || category.equals("All") ? name : name + ":" + category.toLowerCase();
+    }
+
+    private String category(Integer assetId) {
+        String type = assetCatalog.type(assetId);
+        return type == null ? null : type.toLowerCase();
+    }
+}
@@ -0,0 +1,179 @@
+package com.gamemarket.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling over a stream of points in x order. The first and
+ * last points are always kept; the points in between are split into {@code threshold - 2}
+ * buckets and from each bucket the point forming the largest triangle with the previously kept
+ * point and the average of the next bucket is kept. Kept points are passed to the sink as soon
+ * as they are known.
+ *
+ * Memory stays flat however many points a bucket spans: for the bucket being filled only the
+ * running x/y sums are needed, and of the bucket waiting for that average only the vertices of
+ * its convex hull are held, since the triangle area is linear in the candidate point and so is
+ * largest at a hull vertex. Each hull chain is capped at {@link #MAX_HULL} vertices, thinned by
+ * dropping every other interior vertex when it grows past that. With {@code threshold >= total}
+ * (or below 3) every point is passed through.
+ */
+public class LttbDownsampler<T> {
+
+    static final int MAX_HULL = 64;
+
+    private final long total;
+    private final int threshold;
+    private final double every;
+    private final ToDoubleFunction<T> x;
+    private final ToDoubleFunction<T> y;
+    private final Consumer<T> sink;
+    private final boolean passThrough;
+
+    private long index;
+    private T anchor;
+    private T held;
+    private Bucket pending;
+    private Bucket filling = new Bucket();
+    private int fillingBucket;
+
+    // Running sums and upper/lower convex hull chains of the points of one bucket, in x order
+    private class Bucket {
+        final List<T> upper = new ArrayList<>();
+        final List<T> lower = new ArrayList<>();
+        double sx;
+        double sy;
+        long count;
+
+        void add(T p) {
+            sx += x.applyAsDouble(p);
+            sy += y.applyAsDouble(p);
+            count++;
+            push(upper, p, true);
+            push(lower, p, false);
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        double[] average() {
+            return new double[] {sx / count, sy / count};
+        }
+
+        private void push(List<T> chain, T p, boolean upperChain) {
+            while (chain.size() >= 2) {
+                double turn = cross(chain.get(chain.size() - 2), chain.get(chain.size() - 1), p);
+                if (upperChain ? turn < 0 : turn > 0) {
+                    break;
+                }
+                chain.remove(chain.size() - 1);
+            }
+            chain.add(p);
+            if (chain.size() > MAX_HULL) {
+                thin(chain);
+            }
+        }
+
+        // Keeps both ends and every other vertex in between
+        private void thin(List<T> chain) {
+            T last = chain.get(chain.size() - 1);
+            int kept = 1;
+            for (int i = 2; i < chain.size() - 1; i += 2) {
+                chain.set(kept++, chain.get(i));
+            }
+            chain.set(kept++, last);
+            chain.subList(kept, chain.size()).clear();
+        }
+
+        private double cross(T o, T a, T b) {
+            double ox = x.applyAsDouble(o);
+            double oy = y.applyAsDouble(o);
+            return (x.applyAsDouble(a) - ox) * (y.applyAsDouble(b) - oy) - (y.applyAsDouble(a) - oy) * (x.applyAsDouble(b) - ox);
+        }
+    }
+
+    public LttbDownsampler(long total, int threshold, ToDoubleFunction<T> x, ToDoubleFunction<T> y, Consumer<T> sink) {
+        this.total = total;
+        this.threshold = threshold;
+        this.passThrough = threshold < 3 || threshold >= total;
+        this.every = passThrough ? 0 : (double) (total - 2) / (threshold - 2);
+        this.x = x;
+        this.y = y;
+        this.sink = sink;
+    }
+
+    public void accept(T point) {
+        if (passThrough) {
+            sink.accept(point);
+            return;
+        }
+        // Hold one point back so the last point of the stream can be treated as the fixed end point
+        if (held != null) {
+            place(held);
+        }
+        held = point;
+    }
+
+    public void finish() {
+        if (passThrough || held == null) {
+            return;
+        }
+        if (anchor == null) {
+            sink.accept(held);
+            return;
+        }
+        if (!filling.isEmpty()) {
+            if (pending != null) {
+                select(pending, filling.average());
+            }
+            select(filling, new double[] {x.applyAsDouble(held), y.applyAsDouble(held)});
+        } else if (pending != null) {
+            select(pending, new double[] {x.applyAsDouble(held), y.applyAsDouble(held)});
+        }
+        sink.accept(held);
+        held = null;
+    }
+
+    private void place(T point) {
+        long i = index++;
+        if (i == 0) {
+            anchor = point;
+            sink.accept(point);
+            return;
+        }
+        int bucket = fillingBucket;
+        while (bucket < threshold - 3 && i >= (long) Math.floor((bucket + 1) * every) + 1) {
+            bucket++;
+        }
+        if (bucket != fillingBucket && !filling.isEmpty()) {
+            if (pending != null) {
+                select(pending, filling.average());
+            }
+            pending = filling;
+            filling = new Bucket();
+        }
+        fillingBucket = bucket;
+        filling.add(point);
+    }
+
+    private void select(Bucket bucket, double[] next) {
+        double ax = x.applyAsDouble(anchor);
+        double ay = y.applyAsDouble(anchor);
+        double bestArea = -1;
+        T best = null;
+        for (List<T> chain : List.of(bucket.upper, bucket.lower)) {
+            for (T p : chain) {
+                double area = Math.abs((ax - next[0]) * (y.applyAsDouble(p) - ay) - (ax - x.applyAsDouble(p)) * (next[1] - ay));
+                // Ties go to the earlier point, as in a scan of the whole bucket
+                if (area > bestArea || (area == bestArea && x.applyAsDouble(p) < x.applyAsDouble(best))) {
+                    bestArea = area;
+                    best = p;
+                }
+            }
+        }
+        anchor = best;
+        sink.accept(best);
+    }
+}
@@ -0,0 +1,298 @@
+package com.gamemarket.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event feed of trade prints, per-asset market updates and per-user notifications.
+ *
+ * Each connection has its own bounded queue and is flushed by a small sender pool, at most
+ * flush-ms after the first pending message, so one slow client never holds up the others.
+ * Market updates are conflated: a connection only remembers which assets changed and gets
+ * their current state when it is next flushed. When a connection falls more than
+ * queue-capacity trades/notifications behind, the oldest trades are dropped and a "lagged"
+ * event tells the client how many it missed. Notifications are never dropped: if the queue
+ * holds nothing but notifications, the connection gets a final "overflow" event and is closed,
+ * so the client reconnects and reloads its notifications instead of silently missing one.
+ */
+@Service
+public class MarketFeedService {
+
+    private record Message(String event, Object data, boolean trade) {}
+
+    private class Subscriber {
+        final SseEmitter emitter;
+        final Set<Integer> assets;
+        final Integer userId;
+        final ArrayDeque<Message> queue = new ArrayDeque<>();
+        final Set<Integer> dirtyAssets = new LinkedHashSet<>();
+        int dropped;
+        boolean overflowed;
+        boolean heartbeat;
+        boolean scheduled;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, Set<Integer> assets, Integer userId) {
+            this.emitter = emitter;
+            this.assets = assets;
+            this.userId = userId;
+        }
+
+        boolean watches(Integer assetId) {
+            return assets == null || assets.contains(assetId);
+        }
+
+        synchronized void enqueue(Message message) {
+            if (overflowed) {
+                return;
+            }
+            if (queue.size() >= queueCapacity && !dropOldestTrade()) {
+                if (message.trade()) {
+                    dropped++;
+                } else {
+                    overflowed = true;
+                }
+                schedule();
+                return;
+            }
+            queue.addLast(message);
+            schedule();
+        }
+
+        synchronized void markDirty(Integer assetId) {
+            dirtyAssets.add(assetId);
+            schedule();
+        }
+
+        synchronized void markHeartbeat() {
+            heartbeat = true;
+            schedule();
+        }
+
+        private boolean dropOldestTrade() {
+            Iterator<Message> it = queue.iterator();
+            while (it.hasNext()) {
+                if (it.next().trade()) {
+                    it.remove();
+                    dropped++;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Caller holds the monitor
+        private void schedule() {
+            if (!scheduled && !closed) {
+                scheduled = true;
+                senders.schedule(() -> flush(this), flushMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private RollingStatsService rollingStatsService;
+
+    @Value("${market.feed.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${market.feed.flush-ms:100}")
+    private long flushMs;
+
+    @Value("${market.feed.threads:2}")
+    private int threads;
+
+    @Value("${market.feed.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService senders;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        senders = Executors.newScheduledThreadPool(threads, r -> {
+            Thread t = new Thread(r, "market-feed-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+        for (Subscriber s : subscribers) {
+            s.emitter.complete();
+        }
+    }
+
+    /**
+     * Opens a feed for the given assets (null for all) and, when {@code userId} is set, that
+     * user's notifications. The first event of each watched asset with resting orders is its
+     * current market state.
+     */
+    public SseEmitter subscribe(Set<Integer> assets, Integer userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber s = new Subscriber(emitter, assets, userId);
+        emitter.onCompletion(() -> close(s));
+        emitter.onTimeout(() -> close(s));
+        emitter.onError(ex -> close(s));
+        subscribers.add(s);
+        for (Integer assetId : assets != null ? assets : orderBookService.assetIds()) {
+            s.markDirty(assetId);
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrade(TradeExecutedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("tradeId", event.tradeId());
+        data.put("assetId", event.assetId());
+        data.put("price", Money.toBigDecimal(event.price()));
+        data.put("quantity", event.quantity());
+        data.put("time", event.tradeTime());
+        Message message = new Message("trade", data, true);
+        for (Subscriber s : subscribers) {
+            if (s.watches(event.assetId())) {
+                s.enqueue(message);
+                s.markDirty(event.assetId());
+            }
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(OrderBookChangedEvent event) {
+        for (Subscriber s : subscribers) {
+            if (s.watches(event.assetId())) {
+                s.markDirty(event.assetId());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotification(NotificationCreatedEvent event) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", event.id());
+        data.put("message", event.message());
+        data.put("createTime", event.createTime());
+        Message message = new Message("notification", data, false);
+        for (Subscriber s : subscribers) {
+            if (event.userId().equals(s.userId)) {
+                s.enqueue(message);
+            }
+        }
+    }
+
+    // Keeps idle connections open through proxies and detects clients that went away
+    @Scheduled(fixedRate = 15_000L)
+    public void heartbeat() {
+        for (Subscriber s : subscribers) {
+            s.markHeartbeat();
+        }
+    }
+
+    private void flush(Subscriber s) {
+        while (!s.closed) {
+            List<Message> messages;
+            List<Integer> dirty;
+            int dropped;
+            boolean overflowed;
+            boolean heartbeat;
+            synchronized (s) {
+                if (s.queue.isEmpty() && s.dirtyAssets.isEmpty() && s.dropped == 0 && !s.overflowed && !s.heartbeat) {
+                    s.scheduled = false;
+                    return;
+                }
+                messages = new ArrayList<>(s.queue);
+                dirty = new ArrayList<>(s.dirtyAssets);
+                dropped = s.dropped;
+                overflowed = s.overflowed;
+                heartbeat = s.heartbeat;
+                s.queue.clear();
+                s.dirtyAssets.clear();
+                s.dropped = 0;
+                s.heartbeat = false;
+            }
+            try {
+                if (dropped > 0) {
+                    s.emitter.send(SseEmitter.event().name("lagged").data(Map.of("dropped", dropped)));
+                }
+                for (Message m : messages) {
+                    s.emitter.send(SseEmitter.event().name(m.event()).data(m.data()));
+                }
+                if (overflowed) {
+                    s.emitter.send(SseEmitter.event().name("overflow").data(Map.of("reason", "notifications")));
+                    close(s);
+                    s.emitter.complete();
+                    return;
+                }
+                for (Integer assetId : dirty) {
+                    s.emitter.send(SseEmitter.event().name("market").data(market(assetId)));
+                }
+                if (heartbeat) {
+                    s.emitter.send(SseEmitter.event().comment("ping"));
+                }
+            } catch (IOException | IllegalStateException ex) {
+                close(s);
+                s.emitter.completeWithError(ex);
+                return;
+            }
+        }
+    }
+
+    // Current state of an asset's market, read when the update is sent
+    private Map<String, Object> market(Integer assetId) {
+        RollingStatsService.WindowStats day = rollingStatsService.stats(assetId).day();
+        Long bestBid = orderBookService.bestBid(assetId);
+        Long bestAsk = orderBookService.bestAsk(assetId);
+        Long lowest = orderBookService.lowestPrice(assetId);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("assetId", assetId);
+        data.put("seq", orderBookService.seq(assetId));
+        data.put("bestBid", bestBid == null ? null : Money.toBigDecimal(bestBid));
+        data.put("bestAsk", bestAsk == null ? null : Money.toBigDecimal(bestAsk));
+        data.put("price", lowest == null ? null : Money.toBigDecimal(lowest));
+        data.put("orders", orderBookService.orderCount(assetId));
+        data.put("volume24h", day.volume());
+        data.put("change24h", day.change());
+        return data;
+    }
+
+    private void close(Subscriber s) {
+        s.closed = true;
+        subscribers.remove(s);
+    }
+}
@@ -0,0 +1,208 @@
+package com.gamemarket.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Per-asset market summary behind the listings page: lowest resting price plus the 1h/24h/7d
+ * trade statistics kept by {@link RollingStatsService}.
+ *
+ * The "hot", "gainers" and "losers" sorts read their order from {@link LeaderboardService}.
+ * The assetId and price sorts read it from skip lists of the listed assets keyed by lowest
+ * resting price, which are updated in place for just the affected asset whenever its book
+ * changes. Summaries, with their statistics and catalog names read at that moment, are only
+ * built for the requested page.
+ */
+@Service
+public class MarketSummaryService {
+
+    public record Summary(Integer assetId, String name, String type, long price, RollingStatsService.Stats stats) {
+
+        public long sales24() {
+            return stats.day().volume();
+        }
+
+        public double change() {
+            return stats.day().change();
+        }
+    }
+
+    public record Page(List<Summary> content, int total) {}
+
+    // A listed asset at its lowest resting price
+    private record Listing(long price, Integer assetId) {}
+
+    private static final Map<String, Comparator<Listing>> ORDERS = Map.of(
+        "price_asc", Comparator.comparingLong(Listing::price).thenComparing(Listing::assetId),
+        "price_desc", Comparator.comparingLong(Listing::price).reversed().thenComparing(Listing::assetId)
+    );
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private AssetCatalog assetCatalog;
+
+    @Autowired
+    private RollingStatsService rollingStatsService;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private AssetSearchIndex assetSearchIndex;
+
+    @Autowired
+    private CategoryFacetService categoryFacetService;
+
+    // Listed assets in assetId order, with the price they are indexed under
+    private final ConcurrentSkipListMap<Integer, Long> prices = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentSkipListSet<Listing>> byPrice = Map.of(
+        "price_asc", new ConcurrentSkipListSet<>(ORDERS.get("price_asc")),
+        "price_desc", new ConcurrentSkipListSet<>(ORDERS.get("price_desc"))
+    );
+
+    // After the books are loaded
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(5)
+    public synchronized void rebuild() {
+        prices.clear();
+        byPrice.values().forEach(Set::clear);
+        for (Integer assetId : orderBookService.assetIds()) {
+            refresh(assetId);
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(OrderBookChangedEvent event) {
+        refresh(event.assetId());
+    }
+
+    // After AssetCatalog, so a removed asset leaves the listings
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(10)
+    public void onAssetChanged(AssetChangedEvent event) {
+        refresh(event.assetId());
+    }
+
+    /**
+     * One page of summaries of the assets with resting orders, sorted by {@code sort} ("hot",
+     * "gainers", "losers", "price_asc", "price_desc"; anything else keeps assetId order) and
+     * filtered by search keyword (see {@link AssetSearchIndex}) and category, together with the
+     * total number of matches.
+     */
+    public Page page(String sort, String keyword, String category, int offset, int count) {
+        boolean byKeyword = keyword != null && !keyword.isEmpty();
+        boolean byCategory = category != null && !category.isEmpty() && !category.equals("All");
+        boolean byBoard = LeaderboardService.BOARDS.contains(sort);
+        if (byBoard && !byKeyword) {
+            return page(leaderboardService.top(sort, category, offset, count).stream(), leaderboardService.size(sort, category));
+        }
+        if (!byBoard && !byKeyword && !byCategory) {
+            return page(listed(sort).skip(offset).limit(count), prices.size());
+        }
+
+        Stream<Integer> ordered;
+        if (byBoard) {
+            ordered = leaderboardService.top(sort, category, 0, leaderboardService.size(sort, category)).stream();
+        } else if (byCategory) {
+            // Only the category's listed assets are visited
+            ordered = listed(sort, categoryFacetService.listedAssets(category));
+        } else {
+            ordered = listed(sort);
+        }
+        Set<Integer> matches = byKeyword ? assetSearchIndex.matchingIds(keyword) : null;
+        List<Summary> content = new ArrayList<>();
+        int total = 0;
+        for (Iterator<Integer> it = ordered.iterator(); it.hasNext(); ) {
+            Integer assetId = it.next();
+            if (matches != null && !matches.contains(assetId)) {
+                continue;
+            }
+            if (total >= offset && content.size() < count) {
+                Summary summary = summary(assetId);
+                if (summary != null) {
+                    content.add(summary);
+                }
+            }
+            total++;
+        }
+        return new Page(content, total);
+    }
+
+    private Page page(Stream<Integer> assetIds, int total) {
+        List<Summary> content = new ArrayList<>();
+        assetIds.forEach(assetId -> {
+            Summary summary = summary(assetId);
+            if (summary != null) {
+                content.add(summary);
+            }
+        });
+        return new Page(content, total);
+    }
+
+    // All listed assets in the order of a price sort, or by assetId
+    private Stream<Integer> listed(String sort) {
+        ConcurrentSkipListSet<Listing> sorted = sort == null ? null : byPrice.get(sort);
+        return sorted == null ? prices.keySet().stream() : sorted.stream().map(Listing::assetId);
+    }
+
+    // The given listed assets in the order of a price sort, or by assetId
+    private Stream<Integer> listed(String sort, Set<Integer> assetIds) {
+        Comparator<Listing> order = sort == null ? null : ORDERS.get(sort);
+        if (order == null) {
+            return assetIds.stream().sorted();
+        }
+        List<Listing> listings = new ArrayList<>(assetIds.size());
+        for (Integer assetId : assetIds) {
+            Long price = prices.get(assetId);
+            if (price != null) {
+                listings.add(new Listing(price, assetId));
+            }
+        }
+        listings.sort(order);
+        return listings.stream().map(Listing::assetId);
+    }
+
+    // Re-indexes one asset at its current lowest price; unlisted or unknown assets leave the index
+    private synchronized void refresh(Integer assetId) {
+        Long price = assetCatalog.get(assetId) == null ? null : orderBookService.lowestPrice(assetId);
+        Long old = prices.get(assetId);
+        if (old != null && old.equals(price)) {
+            return;
+        }
+        if (old != null) {
+            Listing stale = new Listing(old, assetId);
+            byPrice.values().forEach(set -> set.remove(stale));
+            prices.remove(assetId);
+        }
+        if (price != null) {
+            Listing listing = new Listing(price, assetId);
+            byPrice.values().forEach(set -> set.add(listing));
+            prices.put(assetId, price);
+        }
+    }
+
+    private Summary summary(Integer assetId) {
+        Long price = orderBookService.lowestPrice(assetId);
+        AssetCatalog.Entry asset = assetCatalog.get(assetId);
+        if (price == null || asset == null) {
+            return null;
+        }
+        return new Summary(assetId, asset.name(), asset.type(), price, rollingStatsService.stats(assetId));
+    }
+}
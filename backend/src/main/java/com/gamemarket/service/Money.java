@@ -0,0 +1,45 @@
+package com.gamemarket.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money/price arithmetic on plain longs holding hundredths (scale 2, matching the
+ * DECIMAL(18,2) columns). Matching, wallet arithmetic and sorting work on these longs and only
+ * convert to BigDecimal at the JSON/JPA boundary, so the hot path does not allocate.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    public static long of(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long parse(Object value) {
+        if (value instanceof BigDecimal d) {
+            return of(d);
+        }
+        return of(new BigDecimal(value.toString()));
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    public static long times(long price, long quantity) {
+        return Math.multiplyExact(price, quantity);
+    }
+
+    // Average price of total over quantity, rounded half up
+    public static long average(long total, long quantity) {
+        return Math.floorDiv(Math.addExact(Math.multiplyExact(total, 2), quantity), Math.multiplyExact(quantity, 2));
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+}
@@ -0,0 +1,9 @@
+package com.gamemarket.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by OrderService for every notification it writes, so the push feed can deliver it
+ * once the transaction commits.
+ */
+public record NotificationCreatedEvent(Integer id, Integer userId, String message, LocalDateTime createTime) {}
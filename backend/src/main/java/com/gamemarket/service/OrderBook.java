@@ -0,0 +1,266 @@
+package com.gamemarket.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resting OPEN orders of a single asset, kept in price levels.
+ * Bids are sorted highest price first, asks lowest price first; inside a level
+ * orders keep their arrival order, which gives price-time priority.
+ *
+ * Every change bumps the book's sequence number and records the new state of the affected
+ * level in a bounded ring, so depth readers can catch up from a known sequence with just the
+ * levels that changed.
+ */
+public class OrderBook {
+
+    public static class Entry {
+        private final Integer orderId;
+        private final Integer playerId;
+        private final String side;
+        private final long price;
+        private final LocalDateTime createTime;
+        private int quantity;
+
+        public Entry(Integer orderId, Integer playerId, String side, long price, int quantity, LocalDateTime createTime) {
+            this.orderId = orderId;
+            this.playerId = playerId;
+            this.side = side;
+            this.price = price;
+            this.quantity = quantity;
+            this.createTime = createTime;
+        }
+
+        public Integer getOrderId() { return orderId; }
+        public Integer getPlayerId() { return playerId; }
+        public String getSide() { return side; }
+        // Fixed-point hundredths, see Money
+        public long getPrice() { return price; }
+        public int getQuantity() { return quantity; }
+        public LocalDateTime getCreateTime() { return createTime; }
+    }
+
+    static class Level {
+        final LinkedHashMap<Integer, Entry> orders = new LinkedHashMap<>();
+        long totalQuantity;
+    }
+
+    /** Aggregated price level; price in fixed-point hundredths. */
+    public record PriceLevel(long price, long quantity, int orders) {}
+
+    /** Best {@code levels} price levels per side as of {@code seq}. */
+    public record Depth(long seq, List<PriceLevel> bids, List<PriceLevel> asks) {}
+
+    /** New state of one level after change {@code seq}; zero quantity means the level is gone. */
+    public record LevelDelta(long seq, String side, long price, long quantity, int orders) {}
+
+    public static final int DEFAULT_DELTA_CAPACITY = 1024;
+
+    private final Integer assetId;
+    private final TreeMap<Long, Level> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final TreeMap<Long, Level> asks = new TreeMap<>();
+    private final Map<Integer, Entry> index = new HashMap<>();
+    private final int deltaCapacity;
+    private final ArrayDeque<LevelDelta> deltas = new ArrayDeque<>();
+    private long seq;
+
+    public OrderBook(Integer assetId) {
+        this(assetId, DEFAULT_DELTA_CAPACITY);
+    }
+
+    public OrderBook(Integer assetId, int deltaCapacity) {
+        this.assetId = assetId;
+        this.deltaCapacity = deltaCapacity;
+    }
+
+    public Integer getAssetId() { return assetId; }
+
+    public synchronized void add(Entry entry) {
+        if (entry.quantity <= 0 || index.containsKey(entry.orderId)) {
+            return;
+        }
+        Level level = side(entry.side).computeIfAbsent(entry.price, p -> new Level());
+        level.orders.put(entry.orderId, entry);
+        level.totalQuantity += entry.quantity;
+        index.put(entry.orderId, entry);
+        changed(entry.side, entry.price, level);
+    }
+
+    public synchronized Entry remove(Integer orderId) {
+        Entry entry = index.remove(orderId);
+        if (entry == null) {
+            return null;
+        }
+        TreeMap<Long, Level> levels = side(entry.side);
+        Level level = levels.get(entry.price);
+        level.orders.remove(orderId);
+        level.totalQuantity -= entry.quantity;
+        if (level.orders.isEmpty()) {
+            levels.remove(entry.price);
+        }
+        changed(entry.side, entry.price, level);
+        return entry;
+    }
+
+    // Takes a fill off a resting order, dropping it from the book once it is fully consumed
+    public synchronized void reduce(Integer orderId, int quantity) {
+        Entry entry = index.get(orderId);
+        if (entry == null) {
+            return;
+        }
+        if (quantity >= entry.quantity) {
+            remove(orderId);
+            return;
+        }
+        entry.quantity -= quantity;
+        Level level = side(entry.side).get(entry.price);
+        level.totalQuantity -= quantity;
+        changed(entry.side, entry.price, level);
+    }
+
+    // Sets the remaining quantity of a resting order (used by journal replay); zero removes it
+    public synchronized void setQuantity(Integer orderId, int remaining) {
+        Entry entry = index.get(orderId);
+        if (entry != null && remaining < entry.quantity) {
+            reduce(orderId, entry.quantity - remaining);
+        }
+    }
+
+    // Copies of all resting orders, bids then asks, each in priority order
+    public synchronized List<Entry> entries() {
+        List<Entry> result = new ArrayList<>(index.size());
+        for (TreeMap<Long, Level> levels : List.of(bids, asks)) {
+            for (Level level : levels.values()) {
+                for (Entry e : level.orders.values()) {
+                    result.add(new Entry(e.orderId, e.playerId, e.side, e.price, e.quantity, e.createTime));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies of the resting orders on the opposite side that an incoming order of the given
+     * side and limit price would trade against, best price first and oldest first within a
+     * price. A null limit price crosses the whole opposite side. The walk stops as soon as
+     * the copied orders not owned by {@code excludePlayerId} cover {@code quantity}, so a
+     * taker only pays for the levels it can reach.
+     */
+    public synchronized List<Entry> crossing(String takerSide, Long limitPrice, int quantity, Integer excludePlayerId) {
+        boolean buy = "BUY".equals(takerSide);
+        TreeMap<Long, Level> opposite = buy ? asks : bids;
+        List<Entry> result = new ArrayList<>();
+        long covered = 0;
+        for (Map.Entry<Long, Level> e : opposite.entrySet()) {
+            if (covered >= quantity) {
+                break;
+            }
+            if (limitPrice != null) {
+                long price = e.getKey();
+                if (buy ? price > limitPrice : price < limitPrice) {
+                    break;
+                }
+            }
+            for (Entry o : e.getValue().orders.values()) {
+                result.add(new Entry(o.orderId, o.playerId, o.side, o.price, o.quantity, o.createTime));
+                if (!o.playerId.equals(excludePlayerId)) {
+                    covered += o.quantity;
+                    if (covered >= quantity) {
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    public synchronized Long bestBid() {
+        return bids.isEmpty() ? null : bids.firstKey();
+    }
+
+    public synchronized Long bestAsk() {
+        return asks.isEmpty() ? null : asks.firstKey();
+    }
+
+    // Lowest price among all resting orders, either side
+    public synchronized Long lowestPrice() {
+        Long ask = asks.isEmpty() ? null : asks.firstKey();
+        Long bid = bids.isEmpty() ? null : bids.lastKey();
+        if (ask == null || bid == null) {
+            return ask != null ? ask : bid;
+        }
+        return Math.min(ask, bid);
+    }
+
+    // Highest price among all resting orders, either side
+    public synchronized Long highestPrice() {
+        Long ask = asks.isEmpty() ? null : asks.lastKey();
+        Long bid = bids.isEmpty() ? null : bids.firstKey();
+        if (ask == null || bid == null) {
+            return ask != null ? ask : bid;
+        }
+        return Math.max(ask, bid);
+    }
+
+    public synchronized Entry get(Integer orderId) {
+        return index.get(orderId);
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long seq() {
+        return seq;
+    }
+
+    public synchronized Depth depth(int levels) {
+        return new Depth(seq, levels(bids, levels), levels(asks, levels));
+    }
+
+    /**
+     * Level changes after {@code since}, oldest first, or null when the ring no longer reaches
+     * back that far (or {@code since} is ahead of the book) and the reader has to reload the depth.
+     */
+    public synchronized List<LevelDelta> deltasSince(long since) {
+        if (since > seq || (since < seq && (deltas.isEmpty() || deltas.peekFirst().seq() > since + 1))) {
+            return null;
+        }
+        List<LevelDelta> result = new ArrayList<>((int) (seq - since));
+        for (LevelDelta d : deltas) {
+            if (d.seq() > since) {
+                result.add(d);
+            }
+        }
+        return result;
+    }
+
+    private static List<PriceLevel> levels(TreeMap<Long, Level> side, int count) {
+        List<PriceLevel> result = new ArrayList<>(Math.min(count, side.size()));
+        for (Map.Entry<Long, Level> e : side.entrySet()) {
+            if (result.size() >= count) {
+                break;
+            }
+            result.add(new PriceLevel(e.getKey(), e.getValue().totalQuantity, e.getValue().orders.size()));
+        }
+        return result;
+    }
+
+    private void changed(String side, long price, Level level) {
+        if (deltas.size() >= deltaCapacity) {
+            deltas.pollFirst();
+        }
+        deltas.addLast(new LevelDelta(++seq, side, price, level.orders.isEmpty() ? 0 : level.totalQuantity, level.orders.size()));
+    }
+
+    private TreeMap<Long, Level> side(String side) {
+        return "BUY".equals(side) ? bids : asks;
+    }
+}
@@ -0,0 +1,7 @@
+package com.gamemarket.service;
+
+/**
+ * Published by OrderBookService after a resting order is added to, reduced in or removed from
+ * the book of an asset.
+ */
+public record OrderBookChangedEvent(Integer assetId) {}
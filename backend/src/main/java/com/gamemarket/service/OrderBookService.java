@@ -0,0 +1,303 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.MarketOrder;
+import com.gamemarket.repository.MarketOrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one resident {@link OrderBook} per asset so matching and book reads do not
+ * have to scan the OPEN orders table. The books are loaded once the application is
+ * ready (after DataLoader has seeded) and are then kept current by OrderService.
+ *
+ * When the {@link OrderJournal} is enabled every book change is journaled, and startup
+ * restores the books from the last snapshot plus the journal tail. The OPEN table is
+ * only scanned if there is nothing to recover or the recovered books do not match the
+ * per-asset order count and resting quantity of the OPEN orders in the database.
+ */
+@Service
+public class OrderBookService {
+
+    @Autowired
+    private MarketOrderRepository orderRepository;
+
+    @Autowired
+    private OrderJournal journal;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${market.depth.delta-capacity:1024}")
+    private int deltaCapacity;
+
+    // Identifies this run of the books; sequence numbers restart with it
+    private volatile long epoch = System.currentTimeMillis();
+
+    private final Map<Integer, OrderBook> books = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> orderAssets = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void rebuild() {
+        books.clear();
+        orderAssets.clear();
+        if (journal.isEnabled() && recover()) {
+            ready = true;
+            return;
+        }
+
+        books.clear();
+        orderAssets.clear();
+        epoch = Math.max(epoch + 1, System.currentTimeMillis());
+        List<MarketOrder> open = orderRepository.findByStatus("OPEN");
+        open.sort(Comparator.comparing(MarketOrder::getCreateTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(MarketOrder::getOrderId));
+        for (MarketOrder order : open) {
+            put(order.getAsset().getAssetId(), toEntry(order));
+        }
+        System.out.println("Order books loaded: " + open.size() + " resting orders across " + books.size() + " assets.");
+        if (journal.isEnabled()) {
+            try {
+                journal.reset();
+            } catch (IOException ex) {
+                System.out.println("Order journal reset failed: " + ex.getMessage());
+            }
+        }
+        ready = true;
+        snapshot();
+    }
+
+    private boolean recover() {
+        long start = System.currentTimeMillis();
+        try {
+            boolean found = journal.recover(new OrderJournal.Replayer() {
+                @Override
+                public void add(Integer assetId, OrderBook.Entry entry) {
+                    put(assetId, entry);
+                }
+
+                @Override
+                public void remove(Integer assetId, Integer orderId) {
+                    book(assetId).remove(orderId);
+                    orderAssets.remove(orderId);
+                }
+
+                @Override
+                public void fill(Integer assetId, Integer orderId, int remaining) {
+                    OrderBook book = book(assetId);
+                    book.setQuantity(orderId, remaining);
+                    if (book.get(orderId) == null) {
+                        orderAssets.remove(orderId);
+                    }
+                }
+            });
+            if (!found) {
+                return false;
+            }
+        } catch (IOException | RuntimeException ex) {
+            System.out.println("Order journal recovery failed, rebuilding from database: " + ex.getMessage());
+            return false;
+        }
+
+        // A fill lost from the journal leaves the order count intact, so quantities are compared too
+        String mismatch = verify();
+        if (mismatch != null) {
+            System.out.println("Recovered order books do not match the database (" + mismatch + "), rebuilding from database.");
+            return false;
+        }
+        System.out.println("Order books recovered from journal in " + (System.currentTimeMillis() - start) + " ms: " + orderAssets.size() + " resting orders.");
+        return true;
+    }
+
+    // Compares order count and resting quantity per asset with the OPEN orders table; null when they all agree
+    private String verify() {
+        Map<Integer, long[]> expected = new HashMap<>();
+        for (Object[] row : orderRepository.totalsByAsset("OPEN")) {
+            expected.put((Integer) row[0], new long[]{((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+        }
+        for (OrderBook book : books.values()) {
+            long orders = 0;
+            long quantity = 0;
+            for (OrderBook.Entry entry : book.entries()) {
+                orders++;
+                quantity += entry.getQuantity();
+            }
+            long[] totals = expected.remove(book.getAssetId());
+            if (totals == null) {
+                totals = new long[]{0, 0};
+            }
+            if (totals[0] != orders || totals[1] != quantity) {
+                return "asset " + book.getAssetId() + ": " + orders + " orders / " + quantity + " units, database "
+                    + totals[0] + " orders / " + totals[1] + " units";
+            }
+        }
+        for (Map.Entry<Integer, long[]> e : expected.entrySet()) {
+            if (e.getValue()[0] > 0) {
+                return "asset " + e.getKey() + ": no book, database " + e.getValue()[0] + " orders";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a snapshot of all books and trims the journal segments it covers. The journal is
+     * rolled first, so anything appended while the books are copied lands in the new segment
+     * and is replayed (idempotently) on top of the snapshot.
+     */
+    @Scheduled(fixedDelayString = "${market.journal.snapshot-interval-ms:300000}", initialDelayString = "${market.journal.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        if (!journal.isEnabled() || !ready) {
+            return;
+        }
+        long seq = journal.roll();
+        List<OrderJournal.SnapshotEntry> entries = new ArrayList<>(orderAssets.size());
+        for (OrderBook book : books.values()) {
+            for (OrderBook.Entry entry : book.entries()) {
+                entries.add(new OrderJournal.SnapshotEntry(book.getAssetId(), entry));
+            }
+        }
+        try {
+            journal.writeSnapshot(seq, entries);
+        } catch (IOException ex) {
+            System.out.println("Order book snapshot failed: " + ex.getMessage());
+        }
+    }
+
+    public OrderBook book(Integer assetId) {
+        return books.computeIfAbsent(assetId, id -> new OrderBook(id, deltaCapacity));
+    }
+
+    public void add(MarketOrder order) {
+        Integer assetId = order.getAsset().getAssetId();
+        OrderBook.Entry entry = toEntry(order);
+        OrderBook book = book(assetId);
+        synchronized (book) {
+            put(assetId, entry);
+            journal.appendAdd(assetId, entry);
+        }
+        eventPublisher.publishEvent(new OrderBookChangedEvent(assetId));
+    }
+
+    public void remove(Integer assetId, Integer orderId) {
+        OrderBook book = book(assetId);
+        synchronized (book) {
+            book.remove(orderId);
+            orderAssets.remove(orderId);
+            journal.appendRemove(assetId, orderId);
+        }
+        eventPublisher.publishEvent(new OrderBookChangedEvent(assetId));
+    }
+
+    public void reduce(Integer assetId, Integer orderId, int quantity) {
+        OrderBook book = book(assetId);
+        synchronized (book) {
+            book.reduce(orderId, quantity);
+            OrderBook.Entry entry = book.get(orderId);
+            if (entry == null) {
+                orderAssets.remove(orderId);
+            }
+            journal.appendFill(assetId, orderId, entry == null ? 0 : entry.getQuantity());
+        }
+        eventPublisher.publishEvent(new OrderBookChangedEvent(assetId));
+    }
+
+    public Integer assetOf(Integer orderId) {
+        return orderAssets.get(orderId);
+    }
+
+    // Snapshots of the crossing orders needed to fill quantity for takerId, see OrderBook#crossing
+    public List<OrderBook.Entry> crossing(Integer assetId, String takerSide, Long limitPrice, int quantity, Integer takerId) {
+        OrderBook book = books.get(assetId);
+        return book == null ? List.of() : book.crossing(takerSide, limitPrice, quantity, takerId);
+    }
+
+    public Long bestBid(Integer assetId) {
+        OrderBook book = books.get(assetId);
+        return book == null ? null : book.bestBid();
+    }
+
+    public Long bestAsk(Integer assetId) {
+        OrderBook book = books.get(assetId);
+        return book == null ? null : book.bestAsk();
+    }
+
+    // Lowest resting price of the asset on either side, null when its book is empty
+    public Long lowestPrice(Integer assetId) {
+        OrderBook book = books.get(assetId);
+        return book == null ? null : book.lowestPrice();
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    public long seq(Integer assetId) {
+        OrderBook book = books.get(assetId);
+        return book == null ? 0 : book.seq();
+    }
+
+    // Aggregated L2 depth of the asset, best {@code levels} levels per side
+    public OrderBook.Depth depth(Integer assetId, int levels) {
+        OrderBook book = books.get(assetId);
+        return book == null ? new OrderBook.Depth(0, List.of(), List.of()) : book.depth(levels);
+    }
+
+    // Level changes of the asset after {@code since}, null when the reader has to reload the depth
+    public List<OrderBook.LevelDelta> deltasSince(Integer assetId, long since) {
+        OrderBook book = books.get(assetId);
+        if (book == null) {
+            return since == 0 ? List.of() : null;
+        }
+        return book.deltasSince(since);
+    }
+
+    public Long highestPrice(Integer assetId) {
+        OrderBook book = books.get(assetId);
+        return book == null ? null : book.highestPrice();
+    }
+
+    // Number of resting orders of the asset, both sides
+    public int orderCount(Integer assetId) {
+        OrderBook book = books.get(assetId);
+        return book == null ? 0 : book.size();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<Integer> assetIds() {
+        return new ArrayList<>(books.keySet());
+    }
+
+    private void put(Integer assetId, OrderBook.Entry entry) {
+        orderAssets.put(entry.getOrderId(), assetId);
+        book(assetId).add(entry);
+    }
+
+    private static OrderBook.Entry toEntry(MarketOrder order) {
+        return new OrderBook.Entry(
+            order.getOrderId(),
+            order.getPlayerId(),
+            order.getOrderType(),
+            Money.of(order.getPrice()),
+            order.getQuantity(),
+            order.getCreateTime()
+        );
+    }
+}
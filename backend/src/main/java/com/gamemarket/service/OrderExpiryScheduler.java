@@ -0,0 +1,157 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.MarketOrder;
+import com.gamemarket.repository.MarketOrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel that expires GTD orders. Each slot holds the timeouts whose deadline
+ * hashes to it, with a remaining-rounds counter for deadlines further out than one turn.
+ * Timeouts are never removed when an order is filled or cancelled first; the bulk expiry
+ * statement only touches orders that are still OPEN, so stale timeouts simply do nothing.
+ * Expired orders are handed to {@link OrderService#expireOrders} in batches, one batch per
+ * asset, on that asset's sequencer.
+ */
+@Component
+public class OrderExpiryScheduler {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private MarketOrderRepository orderRepository;
+
+    @Lazy
+    @Autowired
+    private OrderService orderService;
+
+    @Lazy
+    @Autowired
+    private TradeSequencer tradeSequencer;
+
+    @Value("${market.expiry.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${market.expiry.wheel-size:512}")
+    private int wheelSize;
+
+    private static class Timeout {
+        final Integer orderId;
+        final Integer assetId;
+        final long deadlineTick;
+        long rounds;
+
+        Timeout(Integer orderId, Integer assetId, long deadlineTick) {
+            this.orderId = orderId;
+            this.assetId = assetId;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private List<List<Timeout>> wheel;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private long startMillis;
+    private long tick;
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        startMillis = System.currentTimeMillis();
+    }
+
+    // Runs after the order books are rebuilt so expiries never race the initial load
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(10)
+    public void start() {
+        List<MarketOrder> timed = orderRepository.findByStatusAndExpireTimeIsNotNull("OPEN");
+        for (MarketOrder order : timed) {
+            schedule(order.getOrderId(), order.getAsset().getAssetId(), order.getExpireTime());
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-expiry-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleAtFixedRate(this::advance, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        System.out.println("Order expiry wheel started with " + timed.size() + " GTD orders.");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public void schedule(Integer orderId, Integer assetId, LocalDateTime expireTime) {
+        long deadline = expireTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long deadlineTick = Math.max(0, (deadline - startMillis + tickMs - 1) / tickMs);
+        pending.add(new Timeout(orderId, assetId, deadlineTick));
+    }
+
+    private void advance() {
+        try {
+            long target = (System.currentTimeMillis() - startMillis) / tickMs;
+            Map<Integer, List<Integer>> expired = new HashMap<>();
+            while (tick <= target) {
+                drainPending();
+                List<Timeout> slot = wheel.get((int) (tick % wheelSize));
+                slot.removeIf(t -> {
+                    if (t.rounds > 0) {
+                        t.rounds--;
+                        return false;
+                    }
+                    expired.computeIfAbsent(t.assetId, k -> new ArrayList<>()).add(t.orderId);
+                    return true;
+                });
+                tick++;
+            }
+            expired.forEach(this::expire);
+        } catch (RuntimeException ex) {
+            System.out.println("Order expiry tick failed: " + ex.getMessage());
+        }
+    }
+
+    private void drainPending() {
+        Timeout t;
+        while ((t = pending.poll()) != null) {
+            long due = Math.max(t.deadlineTick, tick);
+            t.rounds = (due - tick) / wheelSize;
+            wheel.get((int) (due % wheelSize)).add(t);
+        }
+    }
+
+    private void expire(Integer assetId, List<Integer> orderIds) {
+        for (int i = 0; i < orderIds.size(); i += BATCH_SIZE) {
+            List<Integer> batch = orderIds.subList(i, Math.min(i + BATCH_SIZE, orderIds.size()));
+            tradeSequencer.submit(assetId, () -> orderService.expireOrders(batch))
+                .exceptionally(ex -> {
+                    System.out.println("Expiring orders " + batch + " failed: " + ex.getMessage());
+                    return 0;
+                });
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.gamemarket.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only command journal for the resident order books, plus periodic binary snapshots.
+ *
+ * Records go into fixed-size memory-mapped segment files ({@code journal-<firstSeq>.log}) as
+ * {@code [length][crc32][seq][type][payload]}; a zero length marks the end of written data and a
+ * checksum mismatch marks a torn tail. Every record is idempotent (ADD ignores known orders,
+ * FILL carries the remaining quantity, REMOVE ignores unknown orders), so replaying records a
+ * snapshot already contains is harmless.
+ *
+ * fsync policy: "always" makes each appender wait until its record is forced to disk (concurrent
+ * appenders share one force, i.e. group commit), "interval" forces in the background every
+ * {@code fsync-interval-ms}, "none" leaves write-back to the OS.
+ */
+@Component
+public class OrderJournal {
+
+    public static final byte ADD = 1;
+    public static final byte REMOVE = 2;
+    public static final byte FILL = 3;
+
+    private static final int SNAPSHOT_MAGIC = 0x4F424B53;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    public interface Replayer {
+        void add(Integer assetId, OrderBook.Entry entry);
+        void remove(Integer assetId, Integer orderId);
+        void fill(Integer assetId, Integer orderId, int remaining);
+    }
+
+    public record SnapshotEntry(Integer assetId, OrderBook.Entry entry) {}
+
+    @Value("${market.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${market.journal.dir:./journal}")
+    private String dir;
+
+    @Value("${market.journal.segment-size:67108864}")
+    private int segmentSize;
+
+    @Value("${market.journal.fsync:interval}")
+    private String fsync;
+
+    @Value("${market.journal.fsync-interval-ms:50}")
+    private long fsyncIntervalMs;
+
+    private Path directory;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long nextSeq = 1;
+    private volatile long writtenSeq;
+    private long durableSeq;
+    private final Object flushLock = new Object();
+    private final ByteBuffer scratch = ByteBuffer.allocate(64);
+    private final CRC32 crc = new CRC32();
+    private volatile boolean running;
+    private Thread flusher;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = Paths.get(dir);
+        Files.createDirectories(directory);
+        running = true;
+        if (!"none".equalsIgnoreCase(fsync)) {
+            flusher = new Thread(this::flushLoop, "order-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+        synchronized (this) {
+            if (segment != null) {
+                segment.force();
+                channel.close();
+                segment = null;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void appendAdd(Integer assetId, OrderBook.Entry entry) {
+        append(ADD, buf -> buf.putInt(assetId)
+            .putInt(entry.getOrderId())
+            .putInt(entry.getPlayerId())
+            .put((byte) ("BUY".equals(entry.getSide()) ? 0 : 1))
+            .putLong(entry.getPrice())
+            .putInt(entry.getQuantity())
+            .putLong(toEpochMillis(entry.getCreateTime())));
+    }
+
+    public void appendRemove(Integer assetId, Integer orderId) {
+        append(REMOVE, buf -> buf.putInt(assetId).putInt(orderId));
+    }
+
+    public void appendFill(Integer assetId, Integer orderId, int remaining) {
+        append(FILL, buf -> buf.putInt(assetId).putInt(orderId).putInt(remaining));
+    }
+
+    private void append(byte type, java.util.function.Consumer<ByteBuffer> payload) {
+        if (!enabled) {
+            return;
+        }
+        long seq;
+        synchronized (this) {
+            scratch.clear();
+            seq = nextSeq;
+            scratch.putLong(seq).put(type);
+            payload.accept(scratch);
+            scratch.flip();
+            int length = scratch.remaining();
+            crc.reset();
+            crc.update(scratch.duplicate());
+
+            if (segment == null || segment.remaining() < length + 8) {
+                roll();
+            }
+            segment.putInt(length).putInt((int) crc.getValue()).put(scratch);
+            nextSeq = seq + 1;
+            writtenSeq = seq;
+        }
+        if ("always".equalsIgnoreCase(fsync)) {
+            awaitDurable(seq);
+        }
+    }
+
+    /**
+     * Closes the current segment and starts a new one. Returns the last sequence number written
+     * before the switch, so every record up to it lives in the older segments.
+     */
+    public synchronized long roll() {
+        try {
+            if (segment != null) {
+                segment.force();
+                channel.close();
+            }
+            Path file = directory.resolve(String.format("journal-%020d.log", nextSeq));
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            return nextSeq - 1;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open journal segment", ex);
+        }
+    }
+
+    /**
+     * Loads the last snapshot and replays the journal tail after it. Returns false when there is
+     * nothing to recover from. Afterwards new records go to a fresh segment.
+     */
+    public boolean recover(Replayer replayer) throws IOException {
+        long snapshotSeq = readSnapshot(replayer);
+        List<Path> segments = segments();
+        if (snapshotSeq < 0 && segments.isEmpty()) {
+            return false;
+        }
+        long lastSeq = Math.max(snapshotSeq, 0);
+        long replayed = 0;
+        for (Path file : segments) {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                while (buf.remaining() >= 8) {
+                    int length = buf.getInt();
+                    int checksum = buf.getInt();
+                    if (length <= 0 || length > buf.remaining()) {
+                        break;
+                    }
+                    ByteBuffer body = buf.slice(buf.position(), length);
+                    buf.position(buf.position() + length);
+                    CRC32 check = new CRC32();
+                    check.update(body.duplicate());
+                    if ((int) check.getValue() != checksum) {
+                        break;
+                    }
+                    long seq = body.getLong();
+                    byte type = body.get();
+                    if (seq > snapshotSeq) {
+                        apply(type, body, replayer);
+                        replayed++;
+                    }
+                    lastSeq = Math.max(lastSeq, seq);
+                }
+            }
+        }
+        synchronized (this) {
+            nextSeq = lastSeq + 1;
+            writtenSeq = lastSeq;
+            roll();
+        }
+        System.out.println("Order journal recovered: snapshot seq " + snapshotSeq + ", " + replayed + " records replayed.");
+        return true;
+    }
+
+    // Drops all segments and the snapshot and starts an empty journal (used after a rebuild from the database)
+    public synchronized void reset() throws IOException {
+        if (segment != null) {
+            channel.close();
+            segment = null;
+        }
+        for (Path file : segments()) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_FILE));
+        nextSeq = 1;
+        writtenSeq = 0;
+        synchronized (flushLock) {
+            durableSeq = 0;
+        }
+        roll();
+    }
+
+    /**
+     * Writes a snapshot covering every record up to {@code seq} and deletes the segments that
+     * only hold records up to it.
+     */
+    public void writeSnapshot(long seq, List<SnapshotEntry> entries) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(20 + entries.size() * 33 + 4);
+        buf.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(seq).putInt(entries.size());
+        for (SnapshotEntry e : entries) {
+            OrderBook.Entry entry = e.entry();
+            buf.putInt(e.assetId())
+                .putInt(entry.getOrderId())
+                .putInt(entry.getPlayerId())
+                .put((byte) ("BUY".equals(entry.getSide()) ? 0 : 1))
+                .putLong(entry.getPrice())
+                .putInt(entry.getQuantity())
+                .putLong(toEpochMillis(entry.getCreateTime()));
+        }
+        CRC32 check = new CRC32();
+        check.update(buf.array(), 0, buf.position());
+        buf.putInt((int) check.getValue());
+        buf.flip();
+
+        Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (firstSeq(segments.get(i + 1)) <= seq + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    private long readSnapshot(Replayer replayer) throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return -1;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buf.remaining() < 24) {
+            throw new IOException("Snapshot is truncated");
+        }
+        CRC32 check = new CRC32();
+        check.update(buf.array(), 0, buf.limit() - 4);
+        if ((int) check.getValue() != buf.getInt(buf.limit() - 4)) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        if (buf.getInt() != SNAPSHOT_MAGIC || buf.getInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Unknown snapshot format");
+        }
+        long seq = buf.getLong();
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            Integer assetId = buf.getInt();
+            replayer.add(assetId, readEntry(buf));
+        }
+        return seq;
+    }
+
+    private void apply(byte type, ByteBuffer body, Replayer replayer) {
+        Integer assetId = body.getInt();
+        switch (type) {
+            case ADD -> replayer.add(assetId, readEntry(body));
+            case REMOVE -> replayer.remove(assetId, body.getInt());
+            case FILL -> replayer.fill(assetId, body.getInt(), body.getInt());
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private OrderBook.Entry readEntry(ByteBuffer buf) {
+        int orderId = buf.getInt();
+        int playerId = buf.getInt();
+        String side = buf.get() == 0 ? "BUY" : "SELL";
+        long price = buf.getLong();
+        int quantity = buf.getInt();
+        LocalDateTime createTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(buf.getLong()), ZoneOffset.UTC);
+        return new OrderBook.Entry(orderId, playerId, side, price, quantity, createTime);
+    }
+
+    private void awaitDurable(long seq) {
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+            while (durableSeq < seq && running) {
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                synchronized (flushLock) {
+                    if (durableSeq >= writtenSeq) {
+                        flushLock.wait(fsyncIntervalMs);
+                    }
+                }
+                MappedByteBuffer target;
+                long seq;
+                synchronized (this) {
+                    target = segment;
+                    seq = writtenSeq;
+                }
+                if (target != null && seq > durableSeq) {
+                    target.force();
+                }
+                synchronized (flushLock) {
+                    durableSeq = Math.max(durableSeq, seq);
+                    flushLock.notifyAll();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> result = new ArrayList<>(files
+                .filter(p -> p.getFileName().toString().startsWith("journal-") && p.getFileName().toString().endsWith(".log"))
+                .sorted()
+                .toList());
+            return result;
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time == null ? 0L : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
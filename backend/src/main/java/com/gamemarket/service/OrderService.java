@@ -3,11 +3,23 @@ package com.gamemarket.service;
 import com.gamemarket.entity.*;
 import com.gamemarket.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class OrderService {
@@ -18,6 +30,9 @@ public class OrderService {
     @Autowired
     private AssetRepository assetRepository;
 
+    @Autowired
+    private AssetCatalog assetCatalog;
+
     @Autowired
     private WalletService walletService;
 
@@ -30,42 +45,178 @@ public class OrderService {
     @Autowired
     private NotificationRepository notificationRepository;
 
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private TradeBatchWriter tradeBatchWriter;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Lazy
+    @Autowired
+    private OrderExpiryScheduler orderExpiryScheduler;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private static final Set<String> TIME_IN_FORCE = Set.of("GTC", "IOC", "FOK", "GTD");
+
+    public record Fill(Integer orderId, Integer quantity) {}
+
+    public record SweepResult(Integer requested, Integer filled, BigDecimal total, BigDecimal vwap, List<TradeHistory> fills) {}
+
+    public record FillResult(Integer orderId, Integer quantity, boolean success, String message) {}
+
+    private record AcceptedFill(MarketOrder order, int quantity) {}
+
+    /**
+     * Matches the incoming order against the resting book first (best price, then oldest),
+     * settling each fill through {@link #executeTrade}. What happens to the rest depends on the
+     * time in force: GTC rests it as an OPEN order, GTD rests it until {@code expireTime},
+     * IOC drops it, and FOK refuses the whole order unless the book can fill it completely.
+     */
     @Transactional
-    public void createOrder(Map<String, Object> payload, Integer requesterId) {
+    public List<TradeHistory> createOrder(Map<String, Object> payload, Integer requesterId) {
         Integer itemId = payload.get("itemId") instanceof Number ? ((Number) payload.get("itemId")).intValue() : Integer.parseInt(payload.get("itemId").toString());
         Integer amount = payload.get("amount") instanceof Number ? ((Number) payload.get("amount")).intValue() : Integer.parseInt(payload.get("amount").toString());
-        BigDecimal price = new BigDecimal(payload.get("price").toString());
+        long price = Money.parse(payload.get("price"));
         String type = payload.get("type").toString().toUpperCase();
+        String timeInForce = payload.get("timeInForce") == null ? "GTC" : payload.get("timeInForce").toString().toUpperCase();
+
+        assetCatalog.require(itemId);
+        if (!"BUY".equals(type) && !"SELL".equals(type)) {
+            throw new RuntimeException("Unsupported order type: " + type);
+        }
+        if (!TIME_IN_FORCE.contains(timeInForce)) {
+            throw new RuntimeException("Unsupported time in force: " + timeInForce);
+        }
+        LocalDateTime expireTime = null;
+        if ("GTD".equals(timeInForce)) {
+            if (payload.get("expireTime") == null) {
+                throw new RuntimeException("GTD order requires expireTime");
+            }
+            expireTime = LocalDateTime.parse(payload.get("expireTime").toString());
+            if (!expireTime.isAfter(LocalDateTime.now())) {
+                throw new RuntimeException("expireTime must be in the future");
+            }
+        }
+        if ("FOK".equals(timeInForce) && fillable(itemId, type, price, amount, requesterId) < amount) {
+            throw new RuntimeException("Fill-or-kill order cannot be filled in full");
+        }
 
-        Asset asset = assetRepository.findById(itemId).orElseThrow(() -> new RuntimeException("Asset not found"));
+        List<TradeHistory> fills = new ArrayList<>();
+        int remaining = amount - match(itemId, type, price, amount, requesterId, false, fills);
+        if (remaining == 0 || "IOC".equals(timeInForce)) {
+            return fills;
+        }
+        if ("FOK".equals(timeInForce)) {
+            throw new RuntimeException("Fill-or-kill order cannot be filled in full");
+        }
 
         if ("BUY".equals(type)) {
-            BigDecimal total = price.multiply(BigDecimal.valueOf(amount));
-            walletService.reserveFunds(requesterId, total);
+            walletService.reserveFunds(requesterId, Money.times(price, remaining));
         } else if ("SELL".equals(type)) {
             PlayerAsset pa = playerAssetRepository.findByPlayerIdAndAsset_AssetId(requesterId, itemId);
             if (pa == null) {
                 throw new RuntimeException("Player does not own the item");
             }
             int available = (pa.getQuantity() == null ? 0 : pa.getQuantity()) - (pa.getReservedQuantity() == null ? 0 : pa.getReservedQuantity());
-            if (available < amount) {
+            if (available < remaining) {
                 throw new RuntimeException("Insufficient item quantity to sell");
             }
-            pa.setReservedQuantity(pa.getReservedQuantity() + amount);
+            pa.setReservedQuantity(pa.getReservedQuantity() + remaining);
             playerAssetRepository.save(pa);
-        } else {
-            throw new RuntimeException("Unsupported order type: " + type);
         }
 
         MarketOrder order = new MarketOrder();
         order.setPlayerId(requesterId);
-        order.setAsset(asset);
-        order.setPrice(price);
-        order.setQuantity(amount);
+        // Only the id is written; the row is never loaded
+        order.setAsset(assetRepository.getReferenceById(itemId));
+        order.setPrice(Money.toBigDecimal(price));
+        order.setQuantity(remaining);
         order.setOrderType(type);
         order.setStatus("OPEN");
+        order.setTimeInForce(timeInForce);
+        order.setExpireTime(expireTime);
 
         orderRepository.save(order);
+        afterCommit(() -> {
+            orderBookService.add(order);
+            if (order.getExpireTime() != null) {
+                orderExpiryScheduler.schedule(order.getOrderId(), itemId, order.getExpireTime());
+            }
+        });
+        return fills;
+    }
+
+    // Quantity the book could give an order of this side and limit right now, ignoring the taker's own orders
+    private int fillable(Integer assetId, String takerSide, long limitPrice, int quantity, Integer takerId) {
+        int total = 0;
+        for (OrderBook.Entry maker : orderBookService.crossing(assetId, takerSide, limitPrice, quantity, takerId)) {
+            if (!maker.getPlayerId().equals(takerId)) {
+                total += maker.getQuantity();
+                if (total >= quantity) {
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Expires a batch of GTD orders with a single guarded UPDATE ... RETURNING: only orders
+     * still OPEN are touched, so ones filled or cancelled in the meantime are skipped. The
+     * reservations of the expired orders are released with batched wallet and holding updates
+     * and the owners are notified; the orders leave the book after commit. A wallet the batch
+     * misses is released through {@link WalletService#releaseReserved}, whose failure rolls the
+     * expiry back so no order ends up EXPIRED with its funds still reserved. Returns the number
+     * of orders expired.
+     */
+    @Transactional
+    public int expireOrders(List<Integer> orderIds) {
+        List<TradeBatchWriter.ExpiredOrder> expired = tradeBatchWriter.expireOrders(orderIds);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        Map<Integer, long[]> walletDeltas = new LinkedHashMap<>();
+        Map<List<Integer>, Integer> items = new LinkedHashMap<>();
+        Set<Integer> assetIds = new HashSet<>();
+        for (TradeBatchWriter.ExpiredOrder o : expired) {
+            if ("BUY".equalsIgnoreCase(o.orderType())) {
+                addWalletDelta(walletDeltas, o.playerId(), 0, -Money.times(o.price(), o.quantity()));
+            } else {
+                items.merge(List.of(o.playerId(), o.assetId()), o.quantity(), Integer::sum);
+            }
+            assetIds.add(o.assetId());
+        }
+        // A missed row goes through the guarded single-wallet release, which reports why it failed
+        for (Integer playerId : tradeBatchWriter.applyWalletDeltas(walletDeltas)) {
+            walletService.releaseReserved(playerId, -walletDeltas.get(playerId)[1]);
+        }
+        tradeBatchWriter.releaseItems(items);
+
+        Map<Integer, String> names = assetCatalog.names(assetIds);
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> notifications = new ArrayList<>();
+        for (TradeBatchWriter.ExpiredOrder o : expired) {
+            Notification n = new Notification();
+            n.setUserId(o.playerId());
+            n.setMessage("您的挂单 (" + names.get(o.assetId()) + ") 已过期");
+            n.setCreateTime(now);
+            notifications.add(n);
+        }
+        tradeBatchWriter.insertNotifications(notifications);
+        notifications.forEach(this::publishNotification);
+
+        afterCommit(() -> {
+            for (TradeBatchWriter.ExpiredOrder o : expired) {
+                orderBookService.remove(o.assetId(), o.orderId());
+            }
+        });
+        return expired.size();
     }
 
     @Transactional
@@ -84,8 +235,7 @@ public class OrderService {
 
         // Release reserved resources depending on order type
         if ("BUY".equalsIgnoreCase(order.getOrderType())) {
-            java.math.BigDecimal total = order.getPrice().multiply(java.math.BigDecimal.valueOf(order.getQuantity()));
-            walletService.releaseReserved(requesterId, total);
+            walletService.releaseReserved(requesterId, Money.times(Money.of(order.getPrice()), order.getQuantity()));
         } else if ("SELL".equalsIgnoreCase(order.getOrderType())) {
             Integer assetId = order.getAsset().getAssetId();
             PlayerAsset pa = playerAssetRepository.findByPlayerIdAndAsset_AssetId(requesterId, assetId);
@@ -100,16 +250,17 @@ public class OrderService {
 
         order.setStatus("CANCELLED");
         orderRepository.save(order);
+        afterCommit(() -> orderBookService.remove(order.getAsset().getAssetId(), orderId));
 
         // Notify User
         Notification n = new Notification();
         n.setUserId(requesterId);
-        n.setMessage("您的挂单 (" + order.getAsset().getAssetName() + ") 已成功取消");
-        notificationRepository.save(n);
+        n.setMessage("您的挂单 (" + assetCatalog.name(order.getAsset().getAssetId()) + ") 已成功取消");
+        saveNotification(n);
     }
 
     @Transactional
-    public void executeTrade(Integer orderId, Integer executorId, Integer quantity) {
+    public TradeHistory executeTrade(Integer orderId, Integer executorId, Integer quantity) {
         MarketOrder order = orderRepository.findById(orderId)
             .orElseThrow(() -> new RuntimeException("Order not found"));
         
@@ -123,7 +274,7 @@ public class OrderService {
             throw new RuntimeException("Not enough quantity in order");
         }
 
-        BigDecimal totalPrice = order.getPrice().multiply(BigDecimal.valueOf(quantity));
+        long totalPrice = Money.times(Money.of(order.getPrice()), quantity);
         Integer assetId = order.getAsset().getAssetId();
 
         MarketOrder counterOrder = new MarketOrder();
@@ -147,6 +298,7 @@ public class OrderService {
             }
             int reserved = sellerAsset.getReservedQuantity() == null ? 0 : sellerAsset.getReservedQuantity();
             sellerAsset.setReservedQuantity(Math.max(0, reserved - quantity));
+            portfolioService.recordSell(sellerAsset, Money.of(order.getPrice()), quantity);
             sellerAsset.setQuantity(sellerAsset.getQuantity() - quantity);
             playerAssetRepository.save(sellerAsset);
             
@@ -158,6 +310,7 @@ public class OrderService {
                 executorAsset.setQuantity(0);
                 executorAsset.setReservedQuantity(0);
             }
+            portfolioService.recordBuy(executorAsset, Money.of(order.getPrice()), quantity);
             executorAsset.setQuantity(executorAsset.getQuantity() + quantity);
             executorAsset.setPurchaseDate(java.time.LocalDateTime.now());
             playerAssetRepository.save(executorAsset);
@@ -165,8 +318,8 @@ public class OrderService {
             // Notify Seller
             Notification n = new Notification();
             n.setUserId(order.getPlayerId());
-            n.setMessage("您的商品 (" + order.getAsset().getAssetName() + ") 已被购买 " + quantity + " 个，获得 " + totalPrice + " G");
-            notificationRepository.save(n);
+            n.setMessage("您的商品 (" + assetCatalog.name(order.getAsset().getAssetId()) + ") 已被购买 " + quantity + " 个，获得 " + Money.toBigDecimal(totalPrice) + " G");
+            saveNotification(n);
 
         } else {
             // Executor is SELLING
@@ -178,6 +331,7 @@ public class OrderService {
                 throw new RuntimeException("Insufficient items to sell");
             }
             
+            portfolioService.recordSell(executorAsset, Money.of(order.getPrice()), quantity);
             executorAsset.setQuantity(executorAsset.getQuantity() - quantity);
             playerAssetRepository.save(executorAsset);
             
@@ -189,6 +343,7 @@ public class OrderService {
                 buyerAsset.setQuantity(0);
                 buyerAsset.setReservedQuantity(0);
             }
+            portfolioService.recordBuy(buyerAsset, Money.of(order.getPrice()), quantity);
             buyerAsset.setQuantity(buyerAsset.getQuantity() + quantity);
             buyerAsset.setPurchaseDate(java.time.LocalDateTime.now());
             playerAssetRepository.save(buyerAsset);
@@ -199,8 +354,8 @@ public class OrderService {
             // Notify Buyer (Maker)
             Notification n = new Notification();
             n.setUserId(order.getPlayerId());
-            n.setMessage("您的求购 (" + order.getAsset().getAssetName() + ") 已成交 " + quantity + " 个，花费 " + totalPrice + " G");
-            notificationRepository.save(n);
+            n.setMessage("您的求购 (" + assetCatalog.name(order.getAsset().getAssetId()) + ") 已成交 " + quantity + " 个，花费 " + Money.toBigDecimal(totalPrice) + " G");
+            saveNotification(n);
         }
 
         orderRepository.save(counterOrder);
@@ -210,6 +365,7 @@ public class OrderService {
             order.setStatus("FILLED");
         }
         orderRepository.save(order);
+        afterCommit(() -> orderBookService.reduce(assetId, orderId, quantity));
 
         TradeHistory history = new TradeHistory();
         history.setAsset(order.getAsset());
@@ -219,10 +375,353 @@ public class OrderService {
         if ("SELL".equals(order.getOrderType())) {
             history.setSellOrderId(order.getOrderId());
             history.setBuyOrderId(counterOrder.getOrderId());
+            history.setSellerPlayerId(order.getPlayerId());
+            history.setBuyerPlayerId(executorId);
         } else {
             history.setBuyOrderId(order.getOrderId());
             history.setSellOrderId(counterOrder.getOrderId());
+            history.setBuyerPlayerId(order.getPlayerId());
+            history.setSellerPlayerId(executorId);
+        }
+        TradeHistory saved = tradeHistoryRepository.save(history);
+        publishTrade(saved, order);
+        return saved;
+    }
+
+    /**
+     * Market/sweep order: takes up to {@code quantity} units from the opposite side of the book,
+     * best price first, never beyond {@code limitPrice} (null for no limit). All fills happen in
+     * one transaction; the sweep stops early when the book, the limit or the executor's funds
+     * (for buys) or items (for sells) run out. Nothing rests on the book afterwards.
+     */
+    @Transactional
+    public SweepResult sweep(Integer executorId, Integer assetId, String side, Integer quantity, BigDecimal limitPrice) {
+        String type = side == null ? "BUY" : side.toUpperCase();
+        if (!"BUY".equals(type) && !"SELL".equals(type)) {
+            throw new RuntimeException("Unsupported order type: " + type);
+        }
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("Invalid quantity");
+        }
+        assetCatalog.require(assetId);
+
+        List<TradeHistory> fills = new ArrayList<>();
+        Long limit = limitPrice == null ? null : Money.of(limitPrice);
+        int filled = match(assetId, type, limit, quantity, executorId, true, fills);
+
+        long total = 0;
+        for (TradeHistory t : fills) {
+            total += Money.times(Money.of(t.getPrice()), t.getQuantity());
+        }
+        BigDecimal vwap = filled == 0 ? null : Money.toBigDecimal(Money.average(total, filled));
+        return new SweepResult(quantity, filled, Money.toBigDecimal(total), vwap, fills);
+    }
+
+    /**
+     * Walks the crossing side of the book and settles fills through {@link #executeTrade} until
+     * {@code quantity} is reached or no resting order qualifies. With {@code capToHoldings} each
+     * fill is also trimmed to what the taker can currently pay for (buy) or deliver (sell),
+     * instead of failing the transaction. Returns the quantity filled.
+     */
+    private int match(Integer assetId, String takerSide, Long limitPrice, int quantity, Integer takerId, boolean capToHoldings, List<TradeHistory> fills) {
+        boolean buy = "BUY".equals(takerSide);
+        boolean capFunds = capToHoldings && buy;
+        long funds = capFunds ? walletService.availableFunds(takerId) : 0;
+        int items = capToHoldings && !buy ? availableItems(takerId, assetId) : Integer.MAX_VALUE;
+
+        int remaining = quantity;
+        for (OrderBook.Entry maker : orderBookService.crossing(assetId, takerSide, limitPrice, quantity, takerId)) {
+            if (remaining == 0) {
+                break;
+            }
+            if (maker.getPlayerId().equals(takerId)) {
+                continue;
+            }
+            int fillQuantity = Math.min(remaining, maker.getQuantity());
+            if (capFunds && maker.getPrice() > 0) {
+                fillQuantity = (int) Math.min(fillQuantity, funds / maker.getPrice());
+            }
+            fillQuantity = Math.min(fillQuantity, items);
+            if (fillQuantity <= 0) {
+                break;
+            }
+            TradeHistory trade = executeTrade(maker.getOrderId(), takerId, fillQuantity);
+            fills.add(trade);
+            remaining -= fillQuantity;
+            if (capFunds) {
+                funds -= Money.times(Money.of(trade.getPrice()), fillQuantity);
+            }
+            if (items != Integer.MAX_VALUE) {
+                items -= fillQuantity;
+            }
+        }
+        return quantity - remaining;
+    }
+
+    private int availableItems(Integer playerId, Integer assetId) {
+        PlayerAsset pa = playerAssetRepository.findByPlayerIdAndAsset_AssetId(playerId, assetId);
+        if (pa == null) {
+            return 0;
+        }
+        return (pa.getQuantity() == null ? 0 : pa.getQuantity()) - (pa.getReservedQuantity() == null ? 0 : pa.getReservedQuantity());
+    }
+
+    /**
+     * Settles a list of fills for one executor inside a single transaction. Every fill is first
+     * checked against running totals (order quantity left, executor funds and items), so a bad
+     * fill is reported in its result and skipped without aborting the others. The accepted
+     * fills are then written together: order and holding updates through Hibernate's JDBC
+     * batching, wallet deltas, trades and notifications through {@link TradeBatchWriter}.
+     */
+    @Transactional
+    public List<FillResult> executeTrades(Integer executorId, List<Fill> fills) {
+        Map<Integer, MarketOrder> orders = new HashMap<>();
+        List<Integer> orderIds = fills.stream().map(Fill::orderId).filter(Objects::nonNull).distinct().toList();
+        for (MarketOrder o : orderRepository.findAllById(orderIds)) {
+            orders.put(o.getOrderId(), o);
+        }
+
+        Set<Integer> playerIds = new HashSet<>();
+        Set<Integer> assetIds = new HashSet<>();
+        playerIds.add(executorId);
+        for (MarketOrder o : orders.values()) {
+            playerIds.add(o.getPlayerId());
+            assetIds.add(o.getAsset().getAssetId());
+        }
+        Map<String, PlayerAsset> holdings = new HashMap<>();
+        if (!assetIds.isEmpty()) {
+            for (PlayerAsset pa : playerAssetRepository.findByPlayerIdInAndAsset_AssetIdIn(playerIds, assetIds)) {
+                holdings.put(holdingKey(pa.getPlayerId(), pa.getAsset().getAssetId()), pa);
+            }
+        }
+
+        long funds = walletService.availableFunds(executorId);
+        Map<Integer, Integer> orderRemaining = new HashMap<>();
+        Map<Integer, Integer> itemsCommitted = new HashMap<>();
+        List<FillResult> results = new ArrayList<>();
+        List<AcceptedFill> accepted = new ArrayList<>();
+
+        for (Fill fill : fills) {
+            MarketOrder order = fill.orderId() == null ? null : orders.get(fill.orderId());
+            String error = null;
+            if (fill.quantity() == null || fill.quantity() <= 0) {
+                error = "Invalid quantity";
+            } else if (order == null) {
+                error = "Order not found";
+            } else if (order.getPlayerId().equals(executorId)) {
+                error = "Cannot trade with yourself";
+            } else if (!"OPEN".equals(order.getStatus())) {
+                error = "Order is not open";
+            } else if (orderRemaining.getOrDefault(order.getOrderId(), order.getQuantity()) < fill.quantity()) {
+                error = "Not enough quantity in order";
+            } else if ("SELL".equals(order.getOrderType())) {
+                long cost = Money.times(Money.of(order.getPrice()), fill.quantity());
+                if (holdings.get(holdingKey(order.getPlayerId(), order.getAsset().getAssetId())) == null) {
+                    error = "Seller asset not found (Data inconsistency)";
+                } else if (funds < cost) {
+                    error = "Insufficient funds";
+                } else {
+                    funds -= cost;
+                }
+            } else {
+                Integer assetId = order.getAsset().getAssetId();
+                PlayerAsset own = holdings.get(holdingKey(executorId, assetId));
+                int available = own == null ? 0 : own.getQuantity() - (own.getReservedQuantity() == null ? 0 : own.getReservedQuantity());
+                int committed = itemsCommitted.getOrDefault(assetId, 0);
+                if (available - committed < fill.quantity()) {
+                    error = "Insufficient items to sell";
+                } else {
+                    itemsCommitted.put(assetId, committed + fill.quantity());
+                }
+            }
+
+            if (error != null) {
+                results.add(new FillResult(fill.orderId(), fill.quantity(), false, error));
+                continue;
+            }
+            orderRemaining.put(order.getOrderId(), orderRemaining.getOrDefault(order.getOrderId(), order.getQuantity()) - fill.quantity());
+            accepted.add(new AcceptedFill(order, fill.quantity()));
+            results.add(new FillResult(fill.orderId(), fill.quantity(), true, "Trade executed successfully"));
+        }
+        if (accepted.isEmpty()) {
+            return results;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, long[]> walletDeltas = new LinkedHashMap<>();
+        Map<String, PlayerAsset> touched = new LinkedHashMap<>();
+        List<MarketOrder> counterOrders = new ArrayList<>();
+        List<Notification> notifications = new ArrayList<>();
+
+        for (AcceptedFill a : accepted) {
+            MarketOrder order = a.order();
+            int quantity = a.quantity();
+            Integer assetId = order.getAsset().getAssetId();
+            long totalPrice = Money.times(Money.of(order.getPrice()), quantity);
+
+            MarketOrder counterOrder = new MarketOrder();
+            counterOrder.setPlayerId(executorId);
+            counterOrder.setAsset(order.getAsset());
+            counterOrder.setPrice(order.getPrice());
+            counterOrder.setQuantity(quantity);
+            counterOrder.setStatus("FILLED");
+            counterOrder.setCreateTime(now);
+
+            Notification n = new Notification();
+            n.setUserId(order.getPlayerId());
+            n.setCreateTime(now);
+
+            if ("SELL".equals(order.getOrderType())) {
+                counterOrder.setOrderType("BUY");
+                addWalletDelta(walletDeltas, executorId, -totalPrice, 0);
+                addWalletDelta(walletDeltas, order.getPlayerId(), totalPrice, 0);
+
+                PlayerAsset sellerAsset = holdings.get(holdingKey(order.getPlayerId(), assetId));
+                int reserved = sellerAsset.getReservedQuantity() == null ? 0 : sellerAsset.getReservedQuantity();
+                sellerAsset.setReservedQuantity(Math.max(0, reserved - quantity));
+                portfolioService.recordSell(sellerAsset, Money.of(order.getPrice()), quantity);
+                sellerAsset.setQuantity(sellerAsset.getQuantity() - quantity);
+                touched.put(holdingKey(order.getPlayerId(), assetId), sellerAsset);
+
+                PlayerAsset executorAsset = holding(holdings, executorId, order.getAsset());
+                portfolioService.recordBuy(executorAsset, Money.of(order.getPrice()), quantity);
+                executorAsset.setQuantity(executorAsset.getQuantity() + quantity);
+                executorAsset.setPurchaseDate(now);
+                touched.put(holdingKey(executorId, assetId), executorAsset);
+
+                n.setMessage("您的商品 (" + assetCatalog.name(order.getAsset().getAssetId()) + ") 已被购买 " + quantity + " 个，获得 " + Money.toBigDecimal(totalPrice) + " G");
+            } else {
+                counterOrder.setOrderType("SELL");
+                PlayerAsset executorAsset = holdings.get(holdingKey(executorId, assetId));
+                portfolioService.recordSell(executorAsset, Money.of(order.getPrice()), quantity);
+                executorAsset.setQuantity(executorAsset.getQuantity() - quantity);
+                touched.put(holdingKey(executorId, assetId), executorAsset);
+
+                PlayerAsset buyerAsset = holding(holdings, order.getPlayerId(), order.getAsset());
+                portfolioService.recordBuy(buyerAsset, Money.of(order.getPrice()), quantity);
+                buyerAsset.setQuantity(buyerAsset.getQuantity() + quantity);
+                buyerAsset.setPurchaseDate(now);
+                touched.put(holdingKey(order.getPlayerId(), assetId), buyerAsset);
+
+                addWalletDelta(walletDeltas, order.getPlayerId(), -totalPrice, -totalPrice);
+                addWalletDelta(walletDeltas, executorId, totalPrice, 0);
+
+                n.setMessage("您的求购 (" + assetCatalog.name(order.getAsset().getAssetId()) + ") 已成交 " + quantity + " 个，花费 " + Money.toBigDecimal(totalPrice) + " G");
+            }
+
+            order.setQuantity(order.getQuantity() - quantity);
+            if (order.getQuantity() == 0) {
+                order.setStatus("FILLED");
+            }
+            counterOrders.add(counterOrder);
+            notifications.add(n);
+        }
+
+        orderRepository.saveAll(counterOrders);
+        playerAssetRepository.saveAll(touched.values());
+
+        List<TradeHistory> trades = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            MarketOrder order = accepted.get(i).order();
+            MarketOrder counterOrder = counterOrders.get(i);
+            TradeHistory history = new TradeHistory();
+            history.setAsset(order.getAsset());
+            history.setPrice(order.getPrice());
+            history.setQuantity(accepted.get(i).quantity());
+            history.setTradeTime(now);
+            if ("SELL".equals(order.getOrderType())) {
+                history.setSellOrderId(order.getOrderId());
+                history.setBuyOrderId(counterOrder.getOrderId());
+                history.setSellerPlayerId(order.getPlayerId());
+                history.setBuyerPlayerId(executorId);
+            } else {
+                history.setBuyOrderId(order.getOrderId());
+                history.setSellOrderId(counterOrder.getOrderId());
+                history.setBuyerPlayerId(order.getPlayerId());
+                history.setSellerPlayerId(executorId);
+            }
+            trades.add(history);
+        }
+
+        // Funds were checked up front; a row missed here means a concurrent change, so the whole batch rolls back
+        for (Integer playerId : tradeBatchWriter.applyWalletDeltas(walletDeltas)) {
+            long[] delta = walletDeltas.get(playerId);
+            if (delta[0] > 0 && delta[1] == 0) {
+                walletService.addFunds(playerId, delta[0]);
+            } else {
+                throw new RuntimeException("Insufficient funds for player " + playerId);
+            }
+        }
+        tradeBatchWriter.insertTrades(trades);
+        tradeBatchWriter.insertNotifications(notifications);
+        notifications.forEach(this::publishNotification);
+        for (int i = 0; i < trades.size(); i++) {
+            publishTrade(trades.get(i), accepted.get(i).order());
+        }
+
+        afterCommit(() -> {
+            for (AcceptedFill a : accepted) {
+                orderBookService.reduce(a.order().getAsset().getAssetId(), a.order().getOrderId(), a.quantity());
+            }
+        });
+        return results;
+    }
+
+    // Listeners run after commit, so derived market data never sees a trade that rolled back
+    private void publishTrade(TradeHistory trade, MarketOrder order) {
+        eventPublisher.publishEvent(new TradeExecutedEvent(
+            trade.getTradeId(),
+            order.getAsset().getAssetId(),
+            trade.getBuyOrderId(),
+            trade.getSellOrderId(),
+            trade.getBuyerPlayerId(),
+            trade.getSellerPlayerId(),
+            Money.of(trade.getPrice()),
+            trade.getQuantity(),
+            trade.getTradeTime()
+        ));
+    }
+
+    private void saveNotification(Notification n) {
+        publishNotification(notificationRepository.save(n));
+    }
+
+    private void publishNotification(Notification n) {
+        eventPublisher.publishEvent(new NotificationCreatedEvent(n.getId(), n.getUserId(), n.getMessage(), n.getCreateTime()));
+    }
+
+    private static String holdingKey(Integer playerId, Integer assetId) {
+        return playerId + ":" + assetId;
+    }
+
+    private static PlayerAsset holding(Map<String, PlayerAsset> holdings, Integer playerId, Asset asset) {
+        return holdings.computeIfAbsent(holdingKey(playerId, asset.getAssetId()), k -> {
+            PlayerAsset pa = new PlayerAsset();
+            pa.setPlayerId(playerId);
+            pa.setAsset(asset);
+            pa.setQuantity(0);
+            pa.setReservedQuantity(0);
+            return pa;
+        });
+    }
+
+    private static void addWalletDelta(Map<Integer, long[]> deltas, Integer playerId, long balance, long reserved) {
+        long[] delta = deltas.computeIfAbsent(playerId, k -> new long[2]);
+        delta[0] += balance;
+        delta[1] += reserved;
+    }
+
+    // In-memory book changes must only become visible once the database changes are committed
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
-        tradeHistoryRepository.save(history);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -0,0 +1,261 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.PlayerAsset;
+import com.gamemarket.repository.PlayerAssetRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Average cost basis and realized PnL per holding. OrderService folds every fill into the
+ * buyer's and seller's PlayerAsset while it settles the trade: buys add their cost, sells take
+ * out their share of the average cost and book the difference to the sale price as realized
+ * PnL. Portfolio reads then only visit the player's holdings and mark them against the live
+ * order books, never the trade history.
+ *
+ * Holdings that existed before cost tracking start with a null cost basis and are filled in
+ * once by {@link #backfill()}, which replays the player's trades; units not explained by any
+ * trade (seeded or granted items) are costed at the asset's base price.
+ */
+@Service
+public class PortfolioService {
+
+    /** Valuation of one holding; money in fixed-point hundredths, null where unknown. */
+    public record Position(Integer assetId, String name, int quantity, Long costBasis, Long averageCost, Long markPrice,
+                           Long marketValue, Long unrealizedPnl, long realizedPnl) {
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", assetId);
+            map.put("name", name);
+            map.put("quantity", quantity);
+            map.put("costBasis", money(costBasis));
+            map.put("averageCost", money(averageCost));
+            map.put("markPrice", money(markPrice));
+            map.put("marketValue", money(marketValue));
+            map.put("unrealizedPnl", money(unrealizedPnl));
+            map.put("realizedPnl", Money.toBigDecimal(realizedPnl));
+            return map;
+        }
+    }
+
+    private static final String BACKFILL_PLAYERS =
+        "SELECT DISTINCT player_id FROM player_asset WHERE cost_basis IS NULL AND player_id > ? ORDER BY player_id LIMIT ?";
+
+    private static final String BACKFILL_HOLDINGS =
+        "SELECT pa.id, pa.player_id, pa.asset_id, pa.quantity, a.base_price FROM player_asset pa "
+            + "JOIN asset a ON a.asset_id = pa.asset_id WHERE pa.cost_basis IS NULL AND pa.player_id = ANY (?)";
+
+    private static final String BACKFILL_TRADES =
+        "SELECT buyer_player_id, seller_player_id, asset_id, price, quantity FROM trade_history "
+            + "WHERE buyer_player_id = ANY (?) OR seller_player_id = ANY (?) ORDER BY trade_time, trade_id";
+
+    // Skipped when a trade changed the holding since it was read; the next run picks it up
+    private static final String BACKFILL_UPDATE =
+        "UPDATE player_asset SET cost_basis = ?, realized_pnl = ? WHERE id = ? AND cost_basis IS NULL AND quantity = ?";
+
+    private record BackfillHolding(Integer id, Integer playerId, Integer assetId, int quantity, long basePrice) {}
+
+    private record BackfillTrade(Integer buyerId, Integer sellerId, Integer assetId, long price, int quantity) {}
+
+    @Autowired
+    private PlayerAssetRepository playerAssetRepository;
+
+    @Autowired
+    private AssetCatalog assetCatalog;
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private RollingStatsService rollingStatsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${market.portfolio.backfill-players:200}")
+    private int backfillPlayers;
+
+    /** Adds bought units to a holding. Call before or after its quantity is raised. */
+    public void recordBuy(PlayerAsset holding, long price, int quantity) {
+        if (!tracked(holding)) {
+            return;
+        }
+        holding.setCostBasis(Money.toBigDecimal(Math.addExact(Money.of(holding.getCostBasis()), Money.times(price, quantity))));
+    }
+
+    /** Takes sold units out of a holding. Call before its quantity is lowered. */
+    public void recordSell(PlayerAsset holding, long price, int quantity) {
+        if (!tracked(holding)) {
+            return;
+        }
+        long cost = Money.of(holding.getCostBasis());
+        long removed = costOf(cost, holding.getQuantity(), quantity);
+        holding.setCostBasis(Money.toBigDecimal(cost - removed));
+        holding.setRealizedPnl(Money.toBigDecimal(Money.of(holding.getRealizedPnl()) + Money.times(price, quantity) - removed));
+    }
+
+    /**
+     * Positions of a player, each marked at the best ask (or, without one, the last trade price
+     * of the past 7 days). Sold-out holdings are kept while they carry realized PnL.
+     */
+    public List<Position> positions(Integer playerId) {
+        List<Position> result = new ArrayList<>();
+        for (PlayerAsset pa : playerAssetRepository.findByPlayerId(playerId)) {
+            int quantity = pa.getQuantity() == null ? 0 : pa.getQuantity();
+            long realized = pa.getRealizedPnl() == null ? 0 : Money.of(pa.getRealizedPnl());
+            if (quantity <= 0 && realized == 0) {
+                continue;
+            }
+            Integer assetId = pa.getAsset().getAssetId();
+            Long cost = pa.getCostBasis() == null ? null : Money.of(pa.getCostBasis());
+            Long mark = orderBookService.bestAsk(assetId);
+            if (mark == null) {
+                mark = rollingStatsService.stats(assetId).week().last();
+            }
+            Long value = mark == null ? null : Money.times(mark, quantity);
+            result.add(new Position(
+                assetId,
+                assetCatalog.name(assetId),
+                quantity,
+                cost,
+                cost == null || quantity <= 0 ? null : Money.average(cost, quantity),
+                mark,
+                value,
+                cost == null || value == null ? null : value - cost,
+                realized
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * Fills cost basis and realized PnL of untracked holdings from the trade history, a batch of
+     * players at a time. Run once the trade_history player columns are filled.
+     */
+    public void backfill() {
+        long start = System.currentTimeMillis();
+        int filled = 0;
+        int lastPlayer = Integer.MIN_VALUE;
+        while (true) {
+            List<Integer> players = jdbcTemplate.queryForList(BACKFILL_PLAYERS, Integer.class, lastPlayer, backfillPlayers);
+            if (players.isEmpty()) {
+                break;
+            }
+            lastPlayer = players.get(players.size() - 1);
+            filled += backfill(players);
+        }
+        if (filled > 0) {
+            System.out.println("Portfolio backfill costed " + filled + " holdings in " + (System.currentTimeMillis() - start) + " ms.");
+        }
+    }
+
+    private int backfill(List<Integer> players) {
+        Object[] ids = players.toArray();
+        List<BackfillHolding> holdings = jdbcTemplate.query(BACKFILL_HOLDINGS,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", ids)),
+            (rs, i) -> new BackfillHolding(
+                rs.getInt("id"),
+                rs.getInt("player_id"),
+                rs.getInt("asset_id"),
+                rs.getInt("quantity"),
+                rs.getBigDecimal("base_price") == null ? 0 : Money.of(rs.getBigDecimal("base_price"))));
+        List<BackfillTrade> trades = jdbcTemplate.query(BACKFILL_TRADES,
+            ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("integer", ids));
+                ps.setArray(2, ps.getConnection().createArrayOf("integer", ids));
+            },
+            (rs, i) -> new BackfillTrade(
+                (Integer) rs.getObject("buyer_player_id"),
+                (Integer) rs.getObject("seller_player_id"),
+                rs.getInt("asset_id"),
+                Money.of(rs.getBigDecimal("price")),
+                rs.getInt("quantity")));
+
+        // Signed fills per holding, oldest first; positive quantities are buys
+        Map<String, List<long[]>> fills = new HashMap<>();
+        for (BackfillTrade t : trades) {
+            if (t.buyerId() != null && t.buyerId().equals(t.sellerId())) {
+                continue;
+            }
+            if (t.buyerId() != null) {
+                fills.computeIfAbsent(t.buyerId() + ":" + t.assetId(), k -> new ArrayList<>()).add(new long[]{t.price(), t.quantity()});
+            }
+            if (t.sellerId() != null) {
+                fills.computeIfAbsent(t.sellerId() + ":" + t.assetId(), k -> new ArrayList<>()).add(new long[]{t.price(), -t.quantity()});
+            }
+        }
+
+        List<Object[]> updates = new ArrayList<>(holdings.size());
+        for (BackfillHolding h : holdings) {
+            List<long[]> history = fills.getOrDefault(h.playerId() + ":" + h.assetId(), List.of());
+            long net = 0;
+            for (long[] f : history) {
+                net += f[1];
+            }
+            long held = Math.max(0, h.quantity() - net);
+            long cost = Money.times(h.basePrice(), held);
+            long realized = 0;
+            for (long[] f : history) {
+                if (f[1] > 0) {
+                    held += f[1];
+                    cost += Money.times(f[0], f[1]);
+                } else {
+                    long sold = -f[1];
+                    long removed = costOf(cost, held, sold);
+                    cost -= removed;
+                    realized += Money.times(f[0], sold) - removed;
+                    held = Math.max(0, held - sold);
+                }
+            }
+            if (held != h.quantity()) {
+                cost = held > 0 ? Math.floorDiv(Math.multiplyExact(cost, (long) h.quantity()), held) : Money.times(h.basePrice(), h.quantity());
+            }
+            updates.add(new Object[]{Money.toBigDecimal(cost), Money.toBigDecimal(realized), h.id(), h.quantity()});
+        }
+        int filled = 0;
+        for (int n : jdbcTemplate.batchUpdate(BACKFILL_UPDATE, updates)) {
+            filled += Math.max(n, 0);
+        }
+        return filled;
+    }
+
+    // New holdings start tracked; existing untracked ones wait for the backfill
+    private static boolean tracked(PlayerAsset holding) {
+        if (holding.getCostBasis() != null) {
+            if (holding.getRealizedPnl() == null) {
+                holding.setRealizedPnl(BigDecimal.ZERO);
+            }
+            return true;
+        }
+        if (holding.getId() != null) {
+            return false;
+        }
+        holding.setCostBasis(BigDecimal.ZERO);
+        holding.setRealizedPnl(BigDecimal.ZERO);
+        return true;
+    }
+
+    // Share of the total cost carried by `sold` of `held` units
+    private static long costOf(long cost, long held, long sold) {
+        if (held <= 0) {
+            return 0;
+        }
+        if (sold >= held) {
+            return cost;
+        }
+        return Math.floorDiv(Math.multiplyExact(cost, sold), held);
+    }
+
+    private static BigDecimal money(Long cents) {
+        return cents == null ? null : Money.toBigDecimal(cents);
+    }
+}
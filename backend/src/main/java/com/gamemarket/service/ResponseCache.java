@@ -0,0 +1,89 @@
+package com.gamemarket.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rendered market read responses, kept in a bounded LRU map together with the version of the
+ * market data they were built from. There is one version per asset, advanced whenever its book
+ * changes, it trades or its catalog entry changes, and a market-wide version advanced on any of
+ * these. An entry is only served while the version it was built at is still current (and, for
+ * responses that age with the clock, until its expiry time).
+ */
+@Component
+public class ResponseCache {
+
+    /** Cached body with its plain and gzip encodings; lastModified is when it was rendered. */
+    public record CachedResponse(long version, long expiresMillis, String contentType, byte[] body, byte[] gzipped,
+                                 String etag, long lastModified) {}
+
+    @Value("${market.response-cache.max-entries:2000}")
+    private int maxEntries;
+
+    private final AtomicLong marketVersion = new AtomicLong();
+    private final Map<Integer, AtomicLong> assetVersions = new ConcurrentHashMap<>();
+
+    private final LinkedHashMap<String, CachedResponse> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    @EventListener
+    public void onBookChanged(OrderBookChangedEvent event) {
+        advance(event.assetId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrade(TradeExecutedEvent event) {
+        advance(event.assetId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssetChanged(AssetChangedEvent event) {
+        advance(event.assetId());
+    }
+
+    /** Current version of one asset's data, or of the whole market when assetId is null. */
+    public long version(Integer assetId) {
+        if (assetId == null) {
+            return marketVersion.get();
+        }
+        AtomicLong version = assetVersions.get(assetId);
+        return version == null ? 0 : version.get();
+    }
+
+    // Entry for the key if it was built at the given version and has not expired; null otherwise
+    public synchronized CachedResponse get(String key, long version) {
+        CachedResponse cached = cache.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.version() != version || System.currentTimeMillis() >= cached.expiresMillis()) {
+            cache.remove(key);
+            return null;
+        }
+        return cached;
+    }
+
+    public synchronized void put(String key, CachedResponse response) {
+        CachedResponse current = cache.get(key);
+        // A slower request rendered from older data must not replace a newer entry
+        if (current == null || current.version() <= response.version()) {
+            cache.put(key, response);
+        }
+    }
+
+    private void advance(Integer assetId) {
+        assetVersions.computeIfAbsent(assetId, k -> new AtomicLong()).incrementAndGet();
+        marketVersion.incrementAndGet();
+    }
+}
@@ -0,0 +1,275 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.Candle;
+import com.gamemarket.repository.CandleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rolling 1h, 24h and 7d trade statistics per asset: volume, trade count, open, high, low,
+ * last price and change. Each asset keeps a ring of 1440 one-minute buckets (serving the 1h
+ * and 24h windows) and a ring of 168 one-hour buckets (serving 7d); 7 days of minute buckets
+ * per asset would cost far more memory than the hour granularity is worth. Window totals are
+ * kept incrementally as trades arrive and only rescanned when the oldest populated bucket of a
+ * window ages out, so reads are O(1). The rings are seeded from the 1m and 1h candles at startup.
+ */
+@Service
+public class RollingStatsService {
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long HOUR_MS = 3_600_000L;
+
+    /** Figures of one window; prices are fixed-point hundredths (see Money) and null without trades. */
+    public record WindowStats(long volume, int trades, Long open, Long high, Long low, Long last) {
+
+        public static final WindowStats EMPTY = new WindowStats(0, 0, null, null, null, null);
+
+        // Percent change from the first to the last trade price in the window
+        public double change() {
+            if (open == null || last == null || open == 0) {
+                return 0.0;
+            }
+            return ((Money.toDouble(last) - Money.toDouble(open)) / Money.toDouble(open)) * 100.0;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("volume", volume);
+            map.put("trades", trades);
+            map.put("open", open == null ? null : Money.toBigDecimal(open));
+            map.put("high", high == null ? null : Money.toBigDecimal(high));
+            map.put("low", low == null ? null : Money.toBigDecimal(low));
+            map.put("last", last == null ? null : Money.toBigDecimal(last));
+            map.put("change", change());
+            return map;
+        }
+    }
+
+    public record Stats(WindowStats hour, WindowStats day, WindowStats week) {
+
+        public static final Stats EMPTY = new Stats(WindowStats.EMPTY, WindowStats.EMPTY, WindowStats.EMPTY);
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("1h", hour.toMap());
+            map.put("24h", day.toMap());
+            map.put("7d", week.toMap());
+            return map;
+        }
+    }
+
+    // Running totals of the newest `length` buckets of a ring
+    private static class Window {
+        final int length;
+        long volume;
+        int trades;
+        long open;
+        long openBucket = Long.MAX_VALUE;
+        long high = Long.MIN_VALUE;
+        long low = Long.MAX_VALUE;
+        long last;
+        long lastBucket = Long.MIN_VALUE;
+
+        Window(int length) {
+            this.length = length;
+        }
+
+        void reset() {
+            volume = 0;
+            trades = 0;
+            openBucket = Long.MAX_VALUE;
+            high = Long.MIN_VALUE;
+            low = Long.MAX_VALUE;
+            lastBucket = Long.MIN_VALUE;
+        }
+
+        void fold(long bucket, long bOpen, long bHigh, long bLow, long bClose, long bVolume, int bTrades) {
+            volume += bVolume;
+            trades += bTrades;
+            high = Math.max(high, bHigh);
+            low = Math.min(low, bLow);
+            if (bucket < openBucket) {
+                openBucket = bucket;
+                open = bOpen;
+            }
+            if (bucket >= lastBucket) {
+                lastBucket = bucket;
+                last = bClose;
+            }
+        }
+
+        WindowStats snapshot() {
+            return trades == 0 ? WindowStats.EMPTY : new WindowStats(volume, trades, open, high, low, last);
+        }
+    }
+
+    // Fixed ring of time buckets, each slot remembering which absolute bucket it holds
+    private static class Ring {
+        final long bucketMs;
+        final int size;
+        final long[] slotBucket;
+        final long[] volume;
+        final int[] trades;
+        final long[] open;
+        final long[] high;
+        final long[] low;
+        final long[] close;
+        final Window[] windows;
+        long head = Long.MIN_VALUE;
+
+        Ring(long bucketMs, int size, int... windowLengths) {
+            this.bucketMs = bucketMs;
+            this.size = size;
+            this.slotBucket = new long[size];
+            Arrays.fill(slotBucket, Long.MIN_VALUE);
+            this.volume = new long[size];
+            this.trades = new int[size];
+            this.open = new long[size];
+            this.high = new long[size];
+            this.low = new long[size];
+            this.close = new long[size];
+            this.windows = new Window[windowLengths.length];
+            for (int i = 0; i < windowLengths.length; i++) {
+                windows[i] = new Window(windowLengths[i]);
+            }
+        }
+
+        void add(long timeMs, long price, long quantity) {
+            addBucket(Math.floorDiv(timeMs, bucketMs), price, price, price, price, quantity, 1);
+        }
+
+        void addBucket(long bucket, long bOpen, long bHigh, long bLow, long bClose, long bVolume, int bTrades) {
+            advance(bucket);
+            if (bucket <= head - size) {
+                return;
+            }
+            int slot = (int) Math.floorMod(bucket, (long) size);
+            if (slotBucket[slot] != bucket) {
+                slotBucket[slot] = bucket;
+                volume[slot] = 0;
+                trades[slot] = 0;
+                open[slot] = bOpen;
+                high[slot] = bHigh;
+                low[slot] = bLow;
+            }
+            volume[slot] += bVolume;
+            trades[slot] += bTrades;
+            high[slot] = Math.max(high[slot], bHigh);
+            low[slot] = Math.min(low[slot], bLow);
+            close[slot] = bClose;
+            for (Window w : windows) {
+                if (bucket > head - w.length) {
+                    w.fold(bucket, bOpen, bHigh, bLow, bClose, bVolume, bTrades);
+                }
+            }
+        }
+
+        // Moves the newest bucket forward, rescanning any window whose oldest trade has aged out
+        void advance(long bucket) {
+            if (bucket <= head) {
+                return;
+            }
+            head = bucket;
+            for (Window w : windows) {
+                if (w.trades > 0 && w.openBucket <= head - w.length) {
+                    rescan(w);
+                }
+            }
+        }
+
+        void rescan(Window w) {
+            w.reset();
+            for (long b = head - w.length + 1; b <= head; b++) {
+                int slot = (int) Math.floorMod(b, (long) size);
+                if (slotBucket[slot] == b && trades[slot] > 0) {
+                    w.fold(b, open[slot], high[slot], low[slot], close[slot], volume[slot], trades[slot]);
+                }
+            }
+        }
+    }
+
+    // Minute ring serves 1h and 24h, hour ring serves 7d
+    private static class AssetRings {
+        final Ring minutes = new Ring(MINUTE_MS, 1440, 60, 1440);
+        final Ring hours = new Ring(HOUR_MS, 168, 168);
+
+        synchronized void add(long timeMs, long price, long quantity) {
+            minutes.add(timeMs, price, quantity);
+            hours.add(timeMs, price, quantity);
+        }
+
+        synchronized Stats stats(long nowMs) {
+            minutes.advance(Math.floorDiv(nowMs, MINUTE_MS));
+            hours.advance(Math.floorDiv(nowMs, HOUR_MS));
+            return new Stats(minutes.windows[0].snapshot(), minutes.windows[1].snapshot(), hours.windows[0].snapshot());
+        }
+    }
+
+    @Autowired
+    private CandleRepository candleRepository;
+
+    private final Map<Integer, AssetRings> rings = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    // After the candle backfill, so the seed covers existing history
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(3)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        List<Candle> hourly = candleRepository.findByResolutionAndBucketStartGreaterThanEqualOrderByBucketStartAsc("1h", now.minusDays(7));
+        List<Candle> minutely = candleRepository.findByResolutionAndBucketStartGreaterThanEqualOrderByBucketStartAsc("1m", now.minusDays(1));
+        rings.clear();
+        for (Candle c : hourly) {
+            AssetRings r = rings.computeIfAbsent(c.getAssetId(), k -> new AssetRings());
+            synchronized (r) {
+                r.hours.addBucket(Math.floorDiv(toMillis(c.getBucketStart()), HOUR_MS), Money.of(c.getOpen()), Money.of(c.getHigh()),
+                    Money.of(c.getLow()), Money.of(c.getClose()), c.getVolume(), c.getTradeCount());
+            }
+        }
+        for (Candle c : minutely) {
+            AssetRings r = rings.computeIfAbsent(c.getAssetId(), k -> new AssetRings());
+            synchronized (r) {
+                r.minutes.addBucket(Math.floorDiv(toMillis(c.getBucketStart()), MINUTE_MS), Money.of(c.getOpen()), Money.of(c.getHigh()),
+                    Money.of(c.getLow()), Money.of(c.getClose()), c.getVolume(), c.getTradeCount());
+            }
+        }
+        version.incrementAndGet();
+        System.out.println("Rolling stats seeded for " + rings.size() + " assets in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onTrade(TradeExecutedEvent event) {
+        rings.computeIfAbsent(event.assetId(), k -> new AssetRings())
+            .add(toMillis(event.tradeTime()), event.price(), event.quantity());
+        version.incrementAndGet();
+    }
+
+    public Stats stats(Integer assetId) {
+        AssetRings r = rings.get(assetId);
+        return r == null ? Stats.EMPTY : r.stats(System.currentTimeMillis());
+    }
+
+    // Bumped on every trade; together with the minute the figures can only change when this does
+    public long version() {
+        return version.get();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
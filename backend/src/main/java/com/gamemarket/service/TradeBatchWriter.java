@@ -0,0 +1,166 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.Notification;
+import com.gamemarket.entity.TradeHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch writes used when many fills are settled in one transaction. Runs on the
+ * same connection as the surrounding JPA transaction, so it commits or rolls back with it.
+ */
+@Component
+public class TradeBatchWriter {
+
+    private static final String INSERT_TRADE =
+        "INSERT INTO trade_history (buy_order_id, sell_order_id, asset_id, price, quantity, trade_time, buyer_player_id, seller_player_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_NOTIFICATION =
+        "INSERT INTO notification (user_id, message, is_read, create_time) VALUES (?, ?, false, ?)";
+
+    // Applies a net balance/reserved change; only refuses when it would reduce available funds below zero
+    private static final String APPLY_WALLET_DELTA =
+        "UPDATE wallet SET balance = COALESCE(balance, 0) + ?, reserved = COALESCE(reserved, 0) + ?, version = version + 1 "
+            + "WHERE player_id = ? AND (COALESCE(balance, 0) - COALESCE(reserved, 0) + ? >= 0 OR ? >= 0) AND COALESCE(reserved, 0) + ? >= 0";
+
+    // Flips still-OPEN orders to EXPIRED and hands back what each one had reserved
+    private static final String EXPIRE_ORDERS =
+        "UPDATE market_order SET status = 'EXPIRED' WHERE order_id = ANY (?) AND status = 'OPEN' "
+            + "RETURNING order_id, player_id, asset_id, order_type, price, quantity";
+
+    private static final String RELEASE_ITEMS =
+        "UPDATE player_asset SET reserved_quantity = GREATEST(COALESCE(reserved_quantity, 0) - ?, 0) "
+            + "WHERE player_id = ? AND asset_id = ?";
+
+    public record ExpiredOrder(Integer orderId, Integer playerId, Integer assetId, String orderType, long price, int quantity) {}
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Sets the generated trade_id on each trade, so published events carry it
+    public void insertTrades(List<TradeHistory> trades) {
+        if (trades.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = insertReturningIds(INSERT_TRADE, "trade_id", trades, (ps, t) -> {
+            ps.setInt(1, t.getBuyOrderId());
+            ps.setInt(2, t.getSellOrderId());
+            ps.setInt(3, t.getAsset().getAssetId());
+            ps.setBigDecimal(4, t.getPrice());
+            ps.setInt(5, t.getQuantity());
+            ps.setTimestamp(6, Timestamp.valueOf(t.getTradeTime()));
+            ps.setInt(7, t.getBuyerPlayerId());
+            ps.setInt(8, t.getSellerPlayerId());
+        });
+        for (int i = 0; i < trades.size(); i++) {
+            trades.get(i).setTradeId(ids.get(i));
+        }
+    }
+
+    // Sets the generated id on each notification
+    public void insertNotifications(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = insertReturningIds(INSERT_NOTIFICATION, "id", notifications, (ps, n) -> {
+            ps.setInt(1, n.getUserId());
+            ps.setString(2, n.getMessage());
+            ps.setTimestamp(3, Timestamp.valueOf(n.getCreateTime()));
+        });
+        for (int i = 0; i < notifications.size(); i++) {
+            notifications.get(i).setId(ids.get(i));
+        }
+    }
+
+    /**
+     * Applies per-player {balanceDelta, reservedDelta} pairs (fixed-point hundredths) in one batch and returns the
+     * players whose row was not updated (no wallet, the funds guard failed, or less is reserved than released).
+     */
+    public List<Integer> applyWalletDeltas(Map<Integer, long[]> deltas) {
+        List<Map.Entry<Integer, long[]>> rows = new ArrayList<>(deltas.entrySet());
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(APPLY_WALLET_DELTA, rows, rows.size(), (ps, e) -> {
+            long balance = e.getValue()[0];
+            long reserved = e.getValue()[1];
+            BigDecimal available = Money.toBigDecimal(balance - reserved);
+            ps.setBigDecimal(1, Money.toBigDecimal(balance));
+            ps.setBigDecimal(2, Money.toBigDecimal(reserved));
+            ps.setInt(3, e.getKey());
+            ps.setBigDecimal(4, available);
+            ps.setBigDecimal(5, available);
+            ps.setBigDecimal(6, Money.toBigDecimal(reserved));
+        });
+        List<Integer> missed = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (counts[0][i] == 0) {
+                missed.add(rows.get(i).getKey());
+            }
+        }
+        return missed;
+    }
+
+    public List<ExpiredOrder> expireOrders(List<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(EXPIRE_ORDERS,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", orderIds.toArray())),
+            (rs, i) -> new ExpiredOrder(
+                rs.getInt("order_id"),
+                rs.getInt("player_id"),
+                rs.getInt("asset_id"),
+                rs.getString("order_type"),
+                Money.of(rs.getBigDecimal("price")),
+                rs.getInt("quantity")));
+    }
+
+    // One JDBC batch whose generated keys come back in row order
+    private <T> List<Integer> insertReturningIds(String sql, String idColumn, List<T> rows, ParameterizedPreparedStatementSetter<T> setter) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Integer>>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(sql, new String[]{idColumn})) {
+                for (T row : rows) {
+                    setter.setValues(ps, row);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<Integer> ids = new ArrayList<>(rows.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+                if (ids.size() != rows.size()) {
+                    throw new IllegalStateException("Expected " + rows.size() + " generated keys, got " + ids.size());
+                }
+                return ids;
+            }
+        });
+    }
+
+    // Releases reserved item quantities keyed by {playerId, assetId}
+    public void releaseItems(Map<List<Integer>, Integer> quantities) {
+        List<Map.Entry<List<Integer>, Integer>> rows = new ArrayList<>(quantities.entrySet());
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RELEASE_ITEMS, rows, rows.size(), (ps, e) -> {
+            ps.setInt(1, e.getValue());
+            ps.setInt(2, e.getKey().get(0));
+            ps.setInt(3, e.getKey().get(1));
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package com.gamemarket.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by OrderService for every trade it writes. Listeners that keep derived market
+ * data (summaries, statistics) react after the trade's transaction commits. The price is in
+ * fixed-point hundredths, see Money.
+ */
+public record TradeExecutedEvent(
+    Integer tradeId,
+    Integer assetId,
+    Integer buyOrderId,
+    Integer sellOrderId,
+    Integer buyerId,
+    Integer sellerId,
+    long price,
+    int quantity,
+    LocalDateTime tradeTime
+) {}
@@ -0,0 +1,56 @@
+package com.gamemarket.service;
+
+import com.gamemarket.repository.TradeHistoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies buyer and seller player ids from market_order onto trade_history rows written before
+ * those columns existed. Runs once after startup on a background thread, in short batches so
+ * it never holds locks on a large part of the table. The portfolio cost basis backfill, which
+ * reads trades by those columns, runs on the same thread afterwards.
+ */
+@Component
+public class TradeHistoryBackfill {
+
+    @Autowired
+    private TradeHistoryRepository tradeHistoryRepository;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Value("${market.backfill.batch-size:5000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::run, "trade-history-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        long start = System.currentTimeMillis();
+        long total = 0;
+        try {
+            int updated;
+            do {
+                updated = tradeHistoryRepository.backfillPlayers(batchSize);
+                total += updated;
+            } while (updated > 0);
+        } catch (RuntimeException ex) {
+            System.out.println("Trade history backfill stopped: " + ex.getMessage());
+        }
+        if (total > 0) {
+            System.out.println("Trade history backfill filled " + total + " rows in " + (System.currentTimeMillis() - start) + " ms.");
+        }
+        try {
+            portfolioService.backfill();
+        } catch (RuntimeException ex) {
+            System.out.println("Portfolio backfill stopped: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.gamemarket.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Reads the raw trades of an asset in time order through a forward-only cursor, handing rows
+ * to a consumer one at a time so callers can write them out without holding the whole
+ * history. PostgreSQL only uses a server-side cursor inside a transaction, so each read runs
+ * in its own read-only one.
+ */
+@Service
+public class TradeHistoryStreamer {
+
+    public record TradePoint(LocalDateTime time, BigDecimal price, int quantity) {}
+
+    private static final String SELECT_TRADES =
+        "SELECT trade_time, price, quantity FROM trade_history WHERE asset_id = ? AND trade_time BETWEEN ? AND ? ORDER BY trade_time, trade_id";
+
+    private static final String COUNT_TRADES =
+        "SELECT COUNT(*) FROM trade_history WHERE asset_id = ? AND trade_time BETWEEN ? AND ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${market.history.fetch-size:1000}")
+    private int fetchSize;
+
+    public long count(Integer assetId, LocalDateTime from, LocalDateTime to) {
+        Long count = jdbcTemplate.queryForObject(COUNT_TRADES, Long.class, assetId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return count == null ? 0 : count;
+    }
+
+    public void forEach(Integer assetId, LocalDateTime from, LocalDateTime to, Consumer<TradePoint> consumer) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        tx.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_TRADES, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setInt(1, assetId);
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            return ps;
+        }, (ResultSet rs) -> consumer.accept(new TradePoint(
+            rs.getTimestamp(1).toLocalDateTime(),
+            rs.getBigDecimal(2),
+            rs.getInt(3)))));
+    }
+}
@@ -0,0 +1,238 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.MarketOrder;
+import com.gamemarket.entity.TradeHistory;
+import com.gamemarket.repository.MarketOrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Entry point for order and trade commands. In "sequenced" mode every command is routed by
+ * assetId to one of a fixed set of single-writer threads, each draining its own bounded
+ * ring-buffer queue, so commands for one asset apply strictly one after another while
+ * different assets proceed in parallel. In "direct" mode (the default) commands run on the
+ * calling thread exactly as before.
+ */
+@Service
+public class TradeSequencer {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private MarketOrderRepository orderRepository;
+
+    @Value("${market.execution.mode:direct}")
+    private String mode;
+
+    @Value("${market.sequencer.threads:0}")
+    private int threads;
+
+    @Value("${market.sequencer.queue-capacity:1024}")
+    private int queueCapacity;
+
+    private final List<Shard> shards = new ArrayList<>();
+    private volatile boolean stopped;
+
+    @PostConstruct
+    public void start() {
+        if (!isSequenced()) {
+            return;
+        }
+        int count = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < count; i++) {
+            Shard shard = new Shard(i, queueCapacity);
+            shards.add(shard);
+            shard.thread.start();
+        }
+        System.out.println("Trade sequencer started with " + count + " shards.");
+    }
+
+    // Commands still queued fail instead of leaving their callers blocked in await
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+        }
+        for (Shard shard : shards) {
+            List<Task> pending = new ArrayList<>();
+            shard.queue.drainTo(pending);
+            for (Task task : pending) {
+                task.future().completeExceptionally(new RuntimeException("Market is shutting down, please retry"));
+            }
+        }
+    }
+
+    public boolean isSequenced() {
+        return "sequenced".equalsIgnoreCase(mode);
+    }
+
+    public CompletableFuture<List<TradeHistory>> createOrder(Map<String, Object> payload, Integer requesterId) {
+        Object itemId = payload.get("itemId");
+        if (itemId == null) {
+            throw new IllegalArgumentException("itemId is required");
+        }
+        Integer assetId = itemId instanceof Number ? ((Number) itemId).intValue() : Integer.parseInt(itemId.toString());
+        return submit(assetId, () -> orderService.createOrder(payload, requesterId));
+    }
+
+    public CompletableFuture<Void> cancelOrder(Integer orderId, Integer requesterId) {
+        return submit(assetOf(orderId), () -> {
+            orderService.cancelOrder(orderId, requesterId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<TradeHistory> executeTrade(Integer orderId, Integer executorId, Integer quantity) {
+        return submit(assetOf(orderId), () -> orderService.executeTrade(orderId, executorId, quantity));
+    }
+
+    public CompletableFuture<OrderService.SweepResult> sweep(Integer executorId, Integer assetId, String side, Integer quantity, java.math.BigDecimal limitPrice) {
+        return submit(assetId, () -> orderService.sweep(executorId, assetId, side, quantity, limitPrice));
+    }
+
+    /**
+     * In sequenced mode a batch is split by asset and each part is settled on its asset's
+     * shard, so no fill touches an order outside that order's single writer. Each part is its
+     * own transaction; a part that cannot run reports its fills as failed. Results keep the
+     * order of the request.
+     */
+    public CompletableFuture<List<OrderService.FillResult>> executeTrades(Integer executorId, List<OrderService.Fill> fills) {
+        if (!isSequenced()) {
+            return submit(null, () -> orderService.executeTrades(executorId, fills));
+        }
+        // Fills whose order does not exist resolve to no asset and are rejected inline
+        Map<Integer, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < fills.size(); i++) {
+            Integer orderId = fills.get(i).orderId();
+            positions.computeIfAbsent(orderId == null ? null : assetOf(orderId), k -> new ArrayList<>()).add(i);
+        }
+        if (positions.size() <= 1) {
+            Integer assetId = positions.isEmpty() ? null : positions.keySet().iterator().next();
+            return submit(assetId, () -> orderService.executeTrades(executorId, fills));
+        }
+
+        List<List<Integer>> parts = new ArrayList<>(positions.values());
+        List<CompletableFuture<List<OrderService.FillResult>>> futures = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> e : positions.entrySet()) {
+            List<OrderService.Fill> part = e.getValue().stream().map(fills::get).toList();
+            futures.add(submit(e.getKey(), () -> orderService.executeTrades(executorId, part)));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).handle((v, ignored) -> {
+            OrderService.FillResult[] merged = new OrderService.FillResult[fills.size()];
+            for (int k = 0; k < parts.size(); k++) {
+                List<Integer> indexes = parts.get(k);
+                List<OrderService.FillResult> results;
+                try {
+                    results = await(futures.get(k));
+                } catch (RuntimeException ex) {
+                    results = indexes.stream()
+                        .map(i -> new OrderService.FillResult(fills.get(i).orderId(), fills.get(i).quantity(), false, ex.getMessage()))
+                        .toList();
+                }
+                for (int j = 0; j < indexes.size(); j++) {
+                    merged[indexes.get(j)] = results.get(j);
+                }
+            }
+            return Arrays.asList(merged);
+        });
+    }
+
+    public <T> CompletableFuture<T> submit(Integer assetId, Supplier<T> command) {
+        if (!isSequenced() || assetId == null) {
+            try {
+                return CompletableFuture.completedFuture(command.get());
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (stopped) {
+            future.completeExceptionally(new RuntimeException("Market is shutting down, please retry"));
+            return future;
+        }
+        Shard shard = shards.get(Math.floorMod(assetId, shards.size()));
+        Task task = new Task(() -> {
+            try {
+                future.complete(command.get());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        }, future);
+        boolean accepted = shard.queue.offer(task);
+        // Offered while stop() was draining: take it back rather than leave it unserved
+        if (accepted && stopped && shard.queue.remove(task)) {
+            future.completeExceptionally(new RuntimeException("Market is shutting down, please retry"));
+            return future;
+        }
+        if (!accepted) {
+            future.completeExceptionally(new RuntimeException("Market is busy, please retry"));
+        }
+        return future;
+    }
+
+    // Waits for a command and rethrows its original failure rather than the CompletionException wrapper
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private Integer assetOf(Integer orderId) {
+        Integer assetId = orderBookService.assetOf(orderId);
+        if (assetId != null) {
+            return assetId;
+        }
+        return orderRepository.findById(orderId)
+            .map(MarketOrder::getAsset)
+            .map(a -> a.getAssetId())
+            .orElse(null);
+    }
+
+    // A queued command and the future its caller waits on
+    private record Task(Runnable command, CompletableFuture<?> future) {}
+
+    private static class Shard {
+        final BlockingQueue<Task> queue;
+        final Thread thread;
+
+        Shard(int index, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this::drain, "trade-sequencer-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void drain() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    queue.take().command().run();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -2,54 +2,54 @@ package com.gamemarket.service;
 
 import com.gamemarket.entity.Wallet;
 import com.gamemarket.repository.WalletRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 
+/**
+ * Balance and reservation changes are applied as single guarded UPDATE statements, so the
+ * funds check and the write happen atomically in the database in one round trip. Releases and
+ * commits are guarded too, so a duplicate can never take reserved funds below zero. Amounts are
+ * fixed-point hundredths (see {@link Money}) and only become BigDecimal for the query. After
+ * an update only the affected Wallet is detached; the rest of the persistence context (the
+ * orders and holdings of the same trade) stays managed.
+ */
 @Service
 public class WalletService {
 
     @Autowired
     private WalletRepository walletRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Transactional
-    public void reserveFunds(Integer playerId, BigDecimal amount) {
-        Wallet w = walletRepository.findByPlayerId(playerId);
-        if (w == null) {
-            throw new RuntimeException("Wallet not found for player " + playerId);
+    public void reserveFunds(Integer playerId, long amount) {
+        if (walletRepository.reserve(playerId, Money.toBigDecimal(amount)) == 0) {
+            throw failure(playerId);
         }
-        BigDecimal reserved = w.getReserved() == null ? BigDecimal.ZERO : w.getReserved();
-        BigDecimal available = w.getBalance().subtract(reserved);
-        if (available.compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient funds");
-        }
-        w.setReserved(reserved.add(amount));
-        walletRepository.save(w);
+        evict(playerId);
     }
 
     @Transactional
-    public void releaseReserved(Integer playerId, BigDecimal amount) {
-        Wallet w = walletRepository.findByPlayerId(playerId);
-        if (w == null) {
-            throw new RuntimeException("Wallet not found");
+    public void releaseReserved(Integer playerId, long amount) {
+        if (walletRepository.release(playerId, Money.toBigDecimal(amount)) == 0) {
+            throw reservationFailure(playerId);
         }
-        BigDecimal reserved = w.getReserved() == null ? BigDecimal.ZERO : w.getReserved();
-        w.setReserved(reserved.subtract(amount));
-        walletRepository.save(w);
+        evict(playerId);
     }
 
     @Transactional
-    public void commitReserved(Integer playerId, BigDecimal amount) {
-        Wallet w = walletRepository.findByPlayerId(playerId);
-        if (w == null) {
-            throw new RuntimeException("Wallet not found");
+    public void commitReserved(Integer playerId, long amount) {
+        if (walletRepository.commit(playerId, Money.toBigDecimal(amount)) == 0) {
+            throw reservationFailure(playerId);
         }
-        BigDecimal reserved = w.getReserved() == null ? BigDecimal.ZERO : w.getReserved();
-        w.setReserved(reserved.subtract(amount));
-        w.setBalance(w.getBalance().subtract(amount));
-        walletRepository.save(w);
+        evict(playerId);
     }
 
     @Transactional
@@ -71,22 +71,61 @@ public class WalletService {
     }
 
     @Transactional
-    public void deductFunds(Integer playerId, BigDecimal amount) {
+    public void deductFunds(Integer playerId, long amount) {
+        if (walletRepository.deduct(playerId, Money.toBigDecimal(amount)) == 0) {
+            throw failure(playerId);
+        }
+        evict(playerId);
+    }
+
+    @Transactional
+    public void addFunds(Integer playerId, long amount) {
+        if (amount <= 0) {
+            throw new RuntimeException("Invalid amount");
+        }
+        BigDecimal credit = Money.toBigDecimal(amount);
+        if (walletRepository.credit(playerId, credit) == 0) {
+            // First credit for a player without a wallet yet
+            recharge(playerId, credit);
+        } else {
+            evict(playerId);
+        }
+    }
+
+    // Available funds (balance - reserved) in fixed-point hundredths
+    public long availableFunds(Integer playerId) {
         Wallet w = walletRepository.findByPlayerId(playerId);
         if (w == null) {
-            throw new RuntimeException("Wallet not found");
+            return 0;
+        }
+        long balance = w.getBalance() == null ? 0 : Money.of(w.getBalance());
+        long reserved = w.getReserved() == null ? 0 : Money.of(w.getReserved());
+        return balance - reserved;
+    }
+
+    // Detaches the player's Wallet if this transaction loaded it, so the next read sees the updated row
+    private void evict(Integer playerId) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        for (var entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Wallet w && playerId.equals(w.getPlayerId())) {
+                entityManager.detach(w);
+            }
         }
-        BigDecimal reserved = w.getReserved() == null ? BigDecimal.ZERO : w.getReserved();
-        BigDecimal available = w.getBalance().subtract(reserved);
-        if (available.compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient funds");
+    }
+
+    // A release or commit touched no row: either the wallet is missing or less than the amount is reserved
+    private RuntimeException reservationFailure(Integer playerId) {
+        if (!walletRepository.existsByPlayerId(playerId)) {
+            return new RuntimeException("Wallet not found for player " + playerId);
         }
-        w.setBalance(w.getBalance().subtract(amount));
-        walletRepository.save(w);
+        return new RuntimeException("Reserved funds are lower than the amount for player " + playerId);
     }
 
-    @Transactional
-    public void addFunds(Integer playerId, BigDecimal amount) {
-        recharge(playerId, amount);
+    // A guarded update touched no row: either the wallet is missing or the guard rejected it
+    private RuntimeException failure(Integer playerId) {
+        if (!walletRepository.existsByPlayerId(playerId)) {
+            return new RuntimeException("Wallet not found for player " + playerId);
+        }
+        return new RuntimeException("Insufficient funds");
     }
 }
@@ -0,0 +1,112 @@
+package com.gamemarket.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LttbDownsamplerTest {
+
+    private static List<double[]> run(List<double[]> points, int threshold) {
+        List<double[]> kept = new ArrayList<>();
+        LttbDownsampler<double[]> lttb = new LttbDownsampler<>(points.size(), threshold, p -> p[0], p -> p[1], kept::add);
+        points.forEach(lttb::accept);
+        lttb.finish();
+        return kept;
+    }
+
+    // Textbook LTTB over the whole list, scanning every point of each bucket
+    private static List<double[]> reference(List<double[]> data, int threshold) {
+        List<double[]> kept = new ArrayList<>();
+        double every = (double) (data.size() - 2) / (threshold - 2);
+        int a = 0;
+        kept.add(data.get(0));
+        for (int i = 0; i < threshold - 2; i++) {
+            int nextStart = (int) Math.floor((i + 1) * every) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * every) + 1, data.size());
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += data.get(j)[0];
+                avgY += data.get(j)[1];
+            }
+            avgX /= nextEnd - nextStart;
+            avgY /= nextEnd - nextStart;
+            int start = (int) Math.floor(i * every) + 1;
+            double[] p0 = data.get(a);
+            double best = -1;
+            int bestIndex = start;
+            for (int j = start; j < nextStart; j++) {
+                double[] p = data.get(j);
+                double area = Math.abs((p0[0] - avgX) * (p[1] - p0[1]) - (p0[0] - p[0]) * (avgY - p0[1]));
+                if (area > best) {
+                    best = area;
+                    bestIndex = j;
+                }
+            }
+            kept.add(data.get(bestIndex));
+            a = bestIndex;
+        }
+        kept.add(data.get(data.size() - 1));
+        return kept;
+    }
+
+    private static List<double[]> randomWalk(int n, long seed) {
+        Random random = new Random(seed);
+        List<double[]> points = new ArrayList<>(n);
+        double price = 100;
+        for (int i = 0; i < n; i++) {
+            price = Math.max(1, price + random.nextGaussian());
+            points.add(new double[] {i * 1000.0 + random.nextInt(1000), Math.round(price * 100) / 100.0});
+        }
+        return points;
+    }
+
+    @Test
+    void matchesTheFullScanOnRandomWalks() {
+        for (long seed = 1; seed <= 20; seed++) {
+            List<double[]> points = randomWalk(5000, seed);
+            for (int threshold : new int[] {3, 10, 100, 1000}) {
+                assertEquals(reference(points, threshold), run(points, threshold), "seed " + seed + ", threshold " + threshold);
+            }
+        }
+    }
+
+    @Test
+    void keepsFirstAndLastAndThresholdPoints() {
+        List<double[]> points = randomWalk(10_000, 7);
+        List<double[]> kept = run(points, 50);
+
+        assertEquals(50, kept.size());
+        assertSame(points.get(0), kept.get(0));
+        assertSame(points.get(points.size() - 1), kept.get(kept.size() - 1));
+        for (int i = 1; i < kept.size(); i++) {
+            assertTrue(kept.get(i)[0] > kept.get(i - 1)[0]);
+        }
+    }
+
+    @Test
+    void passesEverythingThroughBelowTheThreshold() {
+        List<double[]> points = randomWalk(20, 3);
+
+        assertEquals(points, run(points, 20));
+        assertEquals(points, run(points, 2));
+    }
+
+    @Test
+    void staysBoundedOnConvexData() {
+        // Every point of a convex curve is a hull vertex, so the chains have to be thinned
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            points.add(new double[] {i, (double) i * i});
+        }
+        List<double[]> kept = run(points, 4);
+
+        assertEquals(4, kept.size());
+        assertSame(points.get(0), kept.get(0));
+        assertSame(points.get(points.size() - 1), kept.get(3));
+    }
+}
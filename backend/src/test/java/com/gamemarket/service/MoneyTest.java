@@ -0,0 +1,73 @@
+package com.gamemarket.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void ofRoundsHalfUpToHundredths() {
+        assertEquals(1234, Money.of(new BigDecimal("12.34")));
+        assertEquals(1235, Money.of(new BigDecimal("12.345")));
+        assertEquals(1234, Money.of(new BigDecimal("12.3449")));
+        assertEquals(-1235, Money.of(new BigDecimal("-12.345")));
+        assertEquals(1200, Money.of(new BigDecimal("12")));
+        assertEquals(1, Money.of(new BigDecimal("0.005")));
+        assertEquals(0, Money.of(new BigDecimal("0.0049")));
+    }
+
+    @Test
+    void ofRejectsValuesBeyondLong() {
+        assertEquals(Long.MAX_VALUE, Money.of(BigDecimal.valueOf(Long.MAX_VALUE, 2)));
+        assertThrows(ArithmeticException.class, () -> Money.of(BigDecimal.valueOf(Long.MAX_VALUE, 2).add(new BigDecimal("0.01"))));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e20")));
+    }
+
+    @Test
+    void parseAcceptsNumbersAndStrings() {
+        assertEquals(1050, Money.parse(new BigDecimal("10.5")));
+        assertEquals(1050, Money.parse("10.50"));
+        assertEquals(1050, Money.parse(10.5));
+        assertEquals(1000, Money.parse(10));
+        assertEquals(1, Money.parse("0.005"));
+    }
+
+    @Test
+    void parseRejectsMalformedInput() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("abc"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+        assertThrows(NullPointerException.class, () -> Money.parse(null));
+    }
+
+    @Test
+    void toBigDecimalKeepsScaleTwo() {
+        assertEquals(new BigDecimal("12.34"), Money.toBigDecimal(1234));
+        assertEquals(new BigDecimal("0.00"), Money.toBigDecimal(0));
+        assertEquals(new BigDecimal("-0.05"), Money.toBigDecimal(-5));
+    }
+
+    @Test
+    void timesMultipliesAndFailsOnOverflow() {
+        assertEquals(3702, Money.times(1234, 3));
+        assertEquals(0, Money.times(1234, 0));
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2 + 1, 2));
+    }
+
+    @Test
+    void averageRoundsHalfUp() {
+        assertEquals(1033, Money.average(6200, 6));
+        assertEquals(1034, Money.average(3101, 3));
+        assertEquals(2, Money.average(3, 2));
+        assertEquals(1, Money.average(1, 2));
+        assertEquals(0, Money.average(1, 3));
+        assertEquals(-1, Money.average(-3, 2));
+    }
+
+    @Test
+    void averageFailsOnOverflow() {
+        assertThrows(ArithmeticException.class, () -> Money.average(Long.MAX_VALUE, 1));
+    }
+}
@@ -0,0 +1,126 @@
+package com.gamemarket.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderBookTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static OrderBook.Entry order(int orderId, int playerId, String side, long price, int quantity) {
+        return new OrderBook.Entry(orderId, playerId, side, price, quantity, T0.plusSeconds(orderId));
+    }
+
+    private static List<Integer> ids(List<OrderBook.Entry> entries) {
+        return entries.stream().map(OrderBook.Entry::getOrderId).toList();
+    }
+
+    @Test
+    void crossingWalksBestPriceFirstThenOldestFirst() {
+        OrderBook book = new OrderBook(1);
+        book.add(order(1, 10, "SELL", 1200, 5));
+        book.add(order(2, 11, "SELL", 1000, 5));
+        book.add(order(3, 12, "SELL", 1100, 5));
+        book.add(order(4, 13, "SELL", 1000, 5));
+
+        assertEquals(List.of(2, 4, 3, 1), ids(book.crossing("BUY", null, 100, 99)));
+    }
+
+    @Test
+    void crossingBidsAreHighestPriceFirst() {
+        OrderBook book = new OrderBook(1);
+        book.add(order(1, 10, "BUY", 900, 5));
+        book.add(order(2, 11, "BUY", 1000, 5));
+        book.add(order(3, 12, "BUY", 950, 5));
+
+        assertEquals(List.of(2, 3, 1), ids(book.crossing("SELL", null, 100, 99)));
+    }
+
+    @Test
+    void crossingStopsAtTheLimitPrice() {
+        OrderBook book = new OrderBook(1);
+        book.add(order(1, 10, "SELL", 1000, 5));
+        book.add(order(2, 11, "SELL", 1100, 5));
+        book.add(order(3, 12, "SELL", 1101, 5));
+
+        assertEquals(List.of(1, 2), ids(book.crossing("BUY", 1100L, 100, 99)));
+        assertEquals(List.of(), ids(book.crossing("BUY", 999L, 100, 99)));
+    }
+
+    @Test
+    void crossingStopsOnceQuantityIsCovered() {
+        OrderBook book = new OrderBook(1);
+        book.add(order(1, 10, "SELL", 1000, 2));
+        book.add(order(2, 11, "SELL", 1000, 2));
+        book.add(order(3, 12, "SELL", 1100, 2));
+
+        // 3 units need the first two orders; the second is only partly used
+        assertEquals(List.of(1, 2), ids(book.crossing("BUY", null, 3, 99)));
+        assertEquals(List.of(1), ids(book.crossing("BUY", null, 2, 99)));
+    }
+
+    @Test
+    void crossingDoesNotCountTheTakersOwnOrders() {
+        OrderBook book = new OrderBook(1);
+        book.add(order(1, 99, "SELL", 1000, 5));
+        book.add(order(2, 11, "SELL", 1000, 2));
+        book.add(order(3, 12, "SELL", 1100, 2));
+
+        // The taker's own order is returned but does not cover any of the 3 units
+        assertEquals(List.of(1, 2, 3), ids(book.crossing("BUY", null, 3, 99)));
+    }
+
+    @Test
+    void crossingReturnsCopiesDetachedFromTheBook() {
+        OrderBook book = new OrderBook(1);
+        book.add(order(1, 10, "SELL", 1000, 5));
+
+        OrderBook.Entry copy = book.crossing("BUY", null, 5, 99).get(0);
+        assertNotSame(book.get(1), copy);
+
+        book.reduce(1, 3);
+        assertEquals(5, copy.getQuantity());
+        assertEquals(2, book.get(1).getQuantity());
+        assertEquals(2, book.crossing("BUY", null, 5, 99).get(0).getQuantity());
+    }
+
+    @Test
+    void reduceRemovesFullyFilledOrdersAndEmptyLevels() {
+        OrderBook book = new OrderBook(1);
+        book.add(order(1, 10, "SELL", 1000, 5));
+        book.add(order(2, 11, "SELL", 1100, 5));
+
+        book.reduce(1, 5);
+        assertNull(book.get(1));
+        assertEquals(1100L, book.bestAsk());
+        assertEquals(List.of(new OrderBook.PriceLevel(1100, 5, 1)), book.depth(10).asks());
+    }
+
+    @Test
+    void depthAggregatesLevelsAndDeltasFollowEveryChange() {
+        OrderBook book = new OrderBook(1);
+        book.add(order(1, 10, "BUY", 1000, 5));
+        book.add(order(2, 11, "BUY", 1000, 3));
+        long seq = book.seq();
+        book.reduce(1, 2);
+
+        assertEquals(List.of(new OrderBook.PriceLevel(1000, 6, 2)), book.depth(10).bids());
+        assertEquals(List.of(new OrderBook.LevelDelta(seq + 1, "BUY", 1000, 6, 2)), book.deltasSince(seq));
+    }
+
+    @Test
+    void deltasSinceReturnsNullOnceTheRingHasMovedOn() {
+        OrderBook book = new OrderBook(1, 2);
+        book.add(order(1, 10, "SELL", 1000, 1));
+        book.add(order(2, 10, "SELL", 1001, 1));
+        book.add(order(3, 10, "SELL", 1002, 1));
+
+        assertNull(book.deltasSince(0));
+        assertEquals(2, book.deltasSince(1).size());
+        assertNull(book.deltasSince(book.seq() + 1));
+    }
+}
@@ -0,0 +1,153 @@
+package com.gamemarket.service;
+
+import com.gamemarket.entity.PlayerAsset;
+import com.gamemarket.entity.TradeHistory;
+import com.gamemarket.repository.PlayerAssetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Drives OrderService's matching loop through {@link OrderService#sweep} against a real
+ * {@link OrderBook}; settlement is stubbed so only the walk over the book is under test.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OrderServiceMatchTest {
+
+    private static final int ASSET = 1;
+    private static final int TAKER = 99;
+
+    @Mock
+    private OrderBookService orderBookService;
+
+    @Mock
+    private WalletService walletService;
+
+    @Mock
+    private AssetCatalog assetCatalog;
+
+    @Mock
+    private PlayerAssetRepository playerAssetRepository;
+
+    @Spy
+    @InjectMocks
+    private OrderService orderService;
+
+    private final OrderBook book = new OrderBook(ASSET);
+    private final List<Integer> settled = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(orderBookService.crossing(eq(ASSET), anyString(), any(), anyInt(), any()))
+            .thenAnswer(inv -> book.crossing(inv.getArgument(1), inv.getArgument(2), inv.getArgument(3), inv.getArgument(4)));
+        doAnswer(inv -> {
+            Integer orderId = inv.getArgument(0);
+            int quantity = inv.getArgument(2);
+            TradeHistory trade = new TradeHistory();
+            trade.setPrice(Money.toBigDecimal(book.get(orderId).getPrice()));
+            trade.setQuantity(quantity);
+            book.reduce(orderId, quantity);
+            settled.add(orderId);
+            return trade;
+        }).when(orderService).executeTrade(anyInt(), eq(TAKER), anyInt());
+        when(walletService.availableFunds(TAKER)).thenReturn(Long.MAX_VALUE);
+        holding(100, 0);
+    }
+
+    private void holding(int quantity, int reserved) {
+        PlayerAsset pa = new PlayerAsset();
+        pa.setQuantity(quantity);
+        pa.setReservedQuantity(reserved);
+        when(playerAssetRepository.findByPlayerIdAndAsset_AssetId(TAKER, ASSET)).thenReturn(pa);
+    }
+
+    private void rest(int orderId, int playerId, String side, long price, int quantity) {
+        book.add(new OrderBook.Entry(orderId, playerId, side, price, quantity, LocalDateTime.now()));
+    }
+
+    @Test
+    void fillsAcrossLevelsInPriceTimeOrderAndLeavesThePartialRemainder() {
+        rest(1, 10, "SELL", 1100, 5);
+        rest(2, 11, "SELL", 1000, 2);
+        rest(3, 12, "SELL", 1000, 2);
+
+        OrderService.SweepResult result = orderService.sweep(TAKER, ASSET, "BUY", 6, null);
+
+        assertEquals(List.of(2, 3, 1), settled);
+        assertEquals(6, result.filled());
+        assertEquals(new BigDecimal("62.00"), result.total());
+        assertEquals(new BigDecimal("10.33"), result.vwap());
+        assertEquals(3, book.get(1).getQuantity());
+    }
+
+    @Test
+    void skipsTheTakersOwnOrders() {
+        rest(1, TAKER, "SELL", 900, 5);
+        rest(2, 11, "SELL", 1000, 5);
+
+        OrderService.SweepResult result = orderService.sweep(TAKER, ASSET, "BUY", 3, null);
+
+        assertEquals(List.of(2), settled);
+        assertEquals(3, result.filled());
+        assertEquals(5, book.get(1).getQuantity());
+    }
+
+    @Test
+    void stopsAtTheLimitPrice() {
+        rest(1, 10, "BUY", 1000, 2);
+        rest(2, 11, "BUY", 900, 2);
+        rest(3, 12, "BUY", 800, 2);
+
+        OrderService.SweepResult result = orderService.sweep(TAKER, ASSET, "SELL", 6, new BigDecimal("9.00"));
+
+        assertEquals(List.of(1, 2), settled);
+        assertEquals(4, result.filled());
+    }
+
+    @Test
+    void buySweepIsCappedByAvailableFunds() {
+        when(walletService.availableFunds(TAKER)).thenReturn(2500L);
+        rest(1, 10, "SELL", 1000, 5);
+
+        OrderService.SweepResult result = orderService.sweep(TAKER, ASSET, "BUY", 5, null);
+
+        assertEquals(2, result.filled());
+        assertEquals(3, book.get(1).getQuantity());
+    }
+
+    @Test
+    void sellSweepIsCappedByUnreservedItems() {
+        holding(5, 2);
+        rest(1, 10, "BUY", 1000, 5);
+
+        OrderService.SweepResult result = orderService.sweep(TAKER, ASSET, "SELL", 5, null);
+
+        assertEquals(3, result.filled());
+        assertEquals(2, book.get(1).getQuantity());
+    }
+
+    @Test
+    void emptyBookFillsNothing() {
+        OrderService.SweepResult result = orderService.sweep(TAKER, ASSET, "BUY", 5, null);
+
+        assertEquals(0, result.filled());
+        assertNull(result.vwap());
+        verify(orderService, never()).executeTrade(anyInt(), anyInt(), anyInt());
+    }
+}